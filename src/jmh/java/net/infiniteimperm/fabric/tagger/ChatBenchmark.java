@@ -0,0 +1,47 @@
+package net.infiniteimperm.fabric.tagger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Per-line cost of the chat hooks for typical lobby traffic. Lines that would trigger side
+ * effects needing a running client (a kit load resolving nearby players) only go through the
+ * classifier itself.
+ */
+@State(Scope.Thread)
+public class ChatBenchmark {
+
+    @Param({
+        "<Steve> gg ez, rematch? I was lagging the whole round",
+        "Alex was killed by Steve!",
+        "[Event] The KOTH event starts in 5 minutes at /warp koth"
+    })
+    public String message;
+
+    private final String kitLine = "⚔ Steve_123 loaded a kit";
+
+    @Setup
+    public void setup() {
+        StandIns.bootstrap();
+    }
+
+    @Benchmark
+    public void kitDetectorOnChatMessage() {
+        KitDetector.onChatMessage(message);
+    }
+
+    @Benchmark
+    public void ghostTotemDetectorOnChatMessage() {
+        GhostTotemDetector.onChatMessage(message);
+    }
+
+    @Benchmark
+    public List<ChatEvent> classifyKitLine() {
+        return ChatClassifier.CLIENT.classify(kitLine);
+    }
+}
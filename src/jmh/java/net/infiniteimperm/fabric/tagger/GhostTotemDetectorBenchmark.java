@@ -0,0 +1,43 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.world.GameMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of one GhostTotemDetector tick for a live player (no death), with and without the held
+ * totem changing between ticks.
+ */
+@State(Scope.Thread)
+public class GhostTotemDetectorBenchmark {
+
+    private PlayerInventory inventory;
+    private ItemStack offhandTotem;
+    private boolean swapped;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        inventory = StandIns.kitInventory();
+        offhandTotem = inventory.offHand.get(0);
+    }
+
+    @Benchmark
+    public void tickSteadyState() {
+        GhostTotemDetector.tickPlayer(null, inventory, 1, 20.0f, false, GameMode.SURVIVAL);
+    }
+
+    @Benchmark
+    public void tickWithTotemSwap() {
+        // Alternate the offhand totem so every call goes through equip/unequip
+        swapped = !swapped;
+        inventory.offHand.set(0, swapped ? ItemStack.EMPTY : offhandTotem);
+        inventory.selectedSlot = swapped ? 1 : 8;
+        GhostTotemDetector.tickPlayer(null, inventory, 1, 20.0f, false, GameMode.SURVIVAL);
+    }
+}
@@ -0,0 +1,65 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-tick player snapshot, the per-frame overlay check and the armor walk done when a queue command is blocked.
+ */
+@State(Scope.Thread)
+public class InventoryCheckBenchmark {
+
+    private PlayerInventory holdingTotem;
+    private PlayerInventory notHoldingTotem;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        holdingTotem = StandIns.kitInventory();
+        notHoldingTotem = StandIns.kitInventory();
+        notHoldingTotem.offHand.set(0, ItemStack.EMPTY);
+    }
+
+    // The inventory walk every detector and the overlay read from (inventory packets, or a tick after a change)
+    @Benchmark
+    public Object captureSnapshotHoldingTotem() {
+        return PlayerSnapshot.refreshInventory(holdingTotem);
+    }
+
+    @Benchmark
+    public Object captureSnapshotNotHoldingTotem() {
+        return PlayerSnapshot.refreshInventory(notHoldingTotem);
+    }
+
+    // A tick with no inventory change: vitals only, the walk is skipped (except the periodic safety walk)
+    @Benchmark
+    public Object captureSnapshotQuietTick() {
+        return PlayerSnapshot.capture(holdingTotem, 20.0f, false, null);
+    }
+
+    // What the HUD pays per frame: a read of the captured snapshot
+    @Benchmark
+    public boolean shouldShowWarning() {
+        return TotemWarningOverlay.shouldShowWarning();
+    }
+
+    // Send path for a command that is not gated, and for a gated one (cached verdict)
+    @Benchmark
+    public Object matchUngatedCommand() {
+        return CommandRules.match("msg Steve gg");
+    }
+
+    @Benchmark
+    public int gatedCommandVerdict() {
+        return CommandRules.failedChecks(CommandRules.match("duel Steve"));
+    }
+
+    @Benchmark
+    public Object checkArmorDurability() {
+        return QueueDurabilityChecker.checkArmorDurability(holdingTotem);
+    }
+}
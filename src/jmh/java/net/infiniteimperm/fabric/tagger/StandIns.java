@@ -0,0 +1,58 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+
+/**
+ * Lightweight stand-ins for the benchmarks: a bootstrapped item registry and a PlayerInventory
+ * with no owning player, filled like a typical crystal-PvP kit.
+ */
+final class StandIns {
+
+    private static boolean bootstrapped = false;
+
+    private StandIns() {
+    }
+
+    static synchronized void bootstrap() {
+        if (!bootstrapped) {
+            SharedConstants.createGameVersion();
+            Bootstrap.initialize();
+            bootstrapped = true;
+        }
+    }
+
+    /**
+     * Full kit: sword/crystals/obsidian in the hotbar, totems spread through the inventory,
+     * a totem in the offhand and lightly damaged armor.
+     */
+    static PlayerInventory kitInventory() {
+        bootstrap();
+        PlayerInventory inventory = new PlayerInventory(null);
+        inventory.main.set(0, new ItemStack(Items.NETHERITE_SWORD));
+        inventory.main.set(1, new ItemStack(Items.END_CRYSTAL, 64));
+        inventory.main.set(2, new ItemStack(Items.OBSIDIAN, 64));
+        inventory.main.set(3, new ItemStack(Items.RESPAWN_ANCHOR, 64));
+        inventory.main.set(4, new ItemStack(Items.GLOWSTONE, 64));
+        inventory.main.set(5, new ItemStack(Items.ENDER_PEARL, 16));
+        inventory.main.set(8, new ItemStack(Items.TOTEM_OF_UNDYING));
+        for (int i = 20; i < 36; i += 2) {
+            inventory.main.set(i, new ItemStack(Items.TOTEM_OF_UNDYING));
+        }
+        inventory.offHand.set(0, new ItemStack(Items.TOTEM_OF_UNDYING));
+
+        ItemStack[] armor = {
+            new ItemStack(Items.NETHERITE_BOOTS), new ItemStack(Items.NETHERITE_LEGGINGS),
+            new ItemStack(Items.NETHERITE_CHESTPLATE), new ItemStack(Items.NETHERITE_HELMET)
+        };
+        for (int i = 0; i < armor.length; i++) {
+            armor[i].setDamage(i * 20);
+            inventory.armor.set(i, armor[i]);
+        }
+        inventory.selectedSlot = 0;
+        return inventory;
+    }
+}
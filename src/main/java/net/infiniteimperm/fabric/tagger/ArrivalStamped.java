@@ -0,0 +1,12 @@
+package net.infiniteimperm.fabric.tagger;
+
+/**
+ * Implemented on the timed packet classes by PacketStampMixin: each packet carries its own
+ * network arrival time, so a burst of packets of one kind keeps every packet's timestamp.
+ */
+public interface ArrivalStamped {
+
+    long tagger$getArrivalNanos();
+
+    void tagger$setArrivalNanos(long nanos);
+}
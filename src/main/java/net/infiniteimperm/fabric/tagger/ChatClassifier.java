@@ -0,0 +1,238 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.text.StringVisitable;
+import net.minecraft.text.Text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Single-pass chat classifier. All trigger phrases are compiled into one Aho-Corasick automaton
+ * (a dense DFA over a tiny alphabet), and each message is scanned once, segment by segment via
+ * {@link Text#visit}, without flattening it to a String. Player names are read back from a small
+ * ring of the most recent characters, so the only allocations are for lines that actually match.
+ *
+ * Recognised lines (case-insensitive anchors, same as the old regexes):
+ *   "<name> loaded a kit"                 -> KIT_LOAD
+ *   "<name> was killed[ by <killer>][!]"  -> DEATH
+ *
+ * Instances hold scan state and are not thread-safe; use one per thread.
+ */
+public class ChatClassifier {
+
+    /** Classifier used on the client thread */
+    public static final ChatClassifier CLIENT = new ChatClassifier();
+
+    private static final String[] ANCHORS = { " loaded a kit", " was killed" };
+    private static final ChatEvent.Type[] ANCHOR_TYPES = { ChatEvent.Type.KIT_LOAD, ChatEvent.Type.DEATH };
+    private static final String BY = " by ";
+    private static final int MAX_NAME = 16; // Minecraft usernames are at most 16 characters
+    private static final int WINDOW = 64; // Power of two, > longest anchor + MAX_NAME
+
+    // Compiled automaton: charClass maps ASCII to a compact alphabet (0 = any other char)
+    private static final byte[] charClass = new byte[128];
+    private static final int[][] transitions;
+    private static final int[] accepts; // Anchor index accepted in a state, or -1
+
+    static {
+        int alphabet = 1;
+        for (String anchor : ANCHORS) {
+            for (char c : anchor.toCharArray()) {
+                if (charClass[c] == 0) {
+                    charClass[c] = (byte) alphabet++;
+                }
+            }
+        }
+
+        // Build the trie
+        List<int[]> gotoTable = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        gotoTable.add(newRow(alphabet));
+        output.add(-1);
+        for (int a = 0; a < ANCHORS.length; a++) {
+            int state = 0;
+            for (char c : ANCHORS[a].toCharArray()) {
+                int cls = charClass[c];
+                if (gotoTable.get(state)[cls] == -1) {
+                    gotoTable.get(state)[cls] = gotoTable.size();
+                    gotoTable.add(newRow(alphabet));
+                    output.add(-1);
+                }
+                state = gotoTable.get(state)[cls];
+            }
+            output.set(state, a);
+        }
+
+        // Fold failure links into a full DFA (breadth-first)
+        int states = gotoTable.size();
+        transitions = new int[states][];
+        accepts = new int[states];
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0, tail = 0;
+        transitions[0] = gotoTable.get(0).clone();
+        for (int cls = 0; cls < alphabet; cls++) {
+            if (transitions[0][cls] == -1) {
+                transitions[0][cls] = 0;
+            } else {
+                queue[tail++] = transitions[0][cls];
+            }
+        }
+        accepts[0] = -1;
+        while (head < tail) {
+            int state = queue[head++];
+            accepts[state] = output.get(state) != -1 ? output.get(state) : accepts[fail[state]];
+            transitions[state] = gotoTable.get(state).clone();
+            for (int cls = 0; cls < alphabet; cls++) {
+                int next = transitions[state][cls];
+                if (next == -1) {
+                    transitions[state][cls] = transitions[fail[state]][cls];
+                } else {
+                    fail[next] = transitions[fail[state]][cls];
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    private static int[] newRow(int alphabet) {
+        int[] row = new int[alphabet];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    // Per-message scan state
+    private final char[] window = new char[WINDOW];
+    private int position; // Characters consumed so far in this message
+    private int state;
+    private final ArrayList<ChatEvent> events = new ArrayList<>();
+
+    // Pending DEATH event waiting to see whether " by <killer>" follows
+    private String pendingVictim;
+    private int byMatched; // Characters of BY matched so far
+    private final StringBuilder killer = new StringBuilder(MAX_NAME);
+
+    private final StringVisitable.Visitor<Object> visitor = segment -> {
+        for (int i = 0; i < segment.length(); i++) {
+            accept(segment.charAt(i));
+        }
+        return Optional.empty();
+    };
+
+    /**
+     * Classify a chat component by walking its segments.
+     * @return the events found, in order; the list is reused and only valid until the next call
+     */
+    public List<ChatEvent> classify(Text message) {
+        reset();
+        message.visit(visitor);
+        return finish();
+    }
+
+    /**
+     * Classify an already-flattened message (the ChatPipeline worker, and legacy callers).
+     * @return the events found, in order; the list is reused and only valid until the next call
+     */
+    public List<ChatEvent> classify(CharSequence message) {
+        reset();
+        for (int i = 0; i < message.length(); i++) {
+            accept(message.charAt(i));
+        }
+        return finish();
+    }
+
+    private void reset() {
+        events.clear();
+        position = 0;
+        state = 0;
+        pendingVictim = null;
+    }
+
+    private List<ChatEvent> finish() {
+        if (pendingVictim != null) {
+            emitDeath();
+        }
+        return events;
+    }
+
+    private void accept(char c) {
+        window[position & (WINDOW - 1)] = c;
+        position++;
+
+        if (pendingVictim != null && !acceptKillerChar(c)) {
+            emitDeath();
+        }
+
+        char lower = toLowerAscii(c);
+        state = transitions[state][lower < 128 ? charClass[lower] : 0];
+        int anchor = accepts[state];
+        if (anchor < 0) {
+            return;
+        }
+
+        String name = readNameBefore(position - ANCHORS[anchor].length());
+        if (name == null) {
+            return;
+        }
+        if (ANCHOR_TYPES[anchor] == ChatEvent.Type.DEATH) {
+            pendingVictim = name;
+            byMatched = 0;
+            killer.setLength(0);
+        } else {
+            events.add(new ChatEvent(ANCHOR_TYPES[anchor], name, null));
+        }
+    }
+
+    /**
+     * Feed a character to the optional " by <killer>" suffix of a pending death.
+     * @return false once the suffix is complete or cannot match any more
+     */
+    private boolean acceptKillerChar(char c) {
+        if (byMatched < BY.length()) {
+            if (toLowerAscii(c) == BY.charAt(byMatched)) {
+                byMatched++;
+                return true;
+            }
+            return false;
+        }
+        if (isNameChar(c) && killer.length() < MAX_NAME) {
+            killer.append(c);
+            return true;
+        }
+        return false;
+    }
+
+    private void emitDeath() {
+        String killerName = byMatched == BY.length() && killer.length() > 0 ? killer.toString() : null;
+        events.add(new ChatEvent(ChatEvent.Type.DEATH, pendingVictim, killerName));
+        pendingVictim = null;
+    }
+
+    // Reads the run of [A-Za-z0-9_] ending just before the given absolute position
+    private String readNameBefore(int end) {
+        int start = end;
+        int oldest = Math.max(0, position - WINDOW);
+        while (start > oldest && end - start < MAX_NAME && isNameChar(window[(start - 1) & (WINDOW - 1)])) {
+            start--;
+        }
+        if (start == end) {
+            return null;
+        }
+        char[] name = new char[end - start];
+        for (int i = start; i < end; i++) {
+            name[i - start] = window[i & (WINDOW - 1)];
+        }
+        return new String(name);
+    }
+
+    // ASCII-only, like the old Pattern.CASE_INSENSITIVE (no Unicode case folding)
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,27 @@
+package net.infiniteimperm.fabric.tagger;
+
+/**
+ * A typed event recognised in a chat line by {@link ChatClassifier}.
+ */
+public class ChatEvent {
+
+    public enum Type {
+        KIT_LOAD, // "<player> loaded a kit"
+        DEATH     // "<player> was killed" / "<player> was killed by <killer>"
+    }
+
+    public final Type type;
+    public final String player;
+    public final String killer; // Only set for DEATH with a " by <killer>" suffix, otherwise null
+
+    public ChatEvent(Type type, String player, String killer) {
+        this.type = type;
+        this.player = player;
+        this.killer = killer;
+    }
+
+    @Override
+    public String toString() {
+        return killer == null ? type + "(" + player + ")" : type + "(" + player + " by " + killer + ")";
+    }
+}
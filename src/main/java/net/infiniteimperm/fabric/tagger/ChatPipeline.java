@@ -0,0 +1,187 @@
+package net.infiniteimperm.fabric.tagger;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Moves chat classification off the client thread. In async mode (default) incoming game
+ * messages are put on a bounded queue; a single virtual worker thread classifies them with its
+ * own {@link ChatClassifier}. The client thread drains the results at the start of the next
+ * END_CLIENT_TICK, so detector state is still only touched from the client thread and ghost
+ * decisions stay deterministic, while a chat flood costs the render thread one queue offer per line.
+ * Each line gets a sequence number on arrival and results are delivered strictly in that order,
+ * whichever path classified them (worker, inline on overflow, or inline with async mode off).
+ * Lines classified on the client thread (async mode off, or queue overflow) walk the Text
+ * directly without flattening it; only lines handed to the worker are flattened first, on the
+ * client thread, because Text components (e.g. the lazily rebuilt translations of
+ * TranslatableTextContent) must not be visited concurrently with the chat HUD rendering them.
+ */
+public class ChatPipeline {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final BlockingQueue<Incoming> incoming = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final ConcurrentLinkedQueue<Classified> classified = new ConcurrentLinkedQueue<>();
+    private static volatile boolean asyncMode = true;
+
+    // Client thread only
+    private static final Long2ObjectOpenHashMap<Classified> ready = new Long2ObjectOpenHashMap<>(); // Finished out of order
+    private static long nextSequence = 0; // Assigned to the next incoming line
+    private static long nextDelivery = 0; // Sequence number to deliver next
+
+    static {
+        Thread.ofVirtual().name("GhostDetector-Chat").start(ChatPipeline::workerLoop);
+    }
+
+    /**
+     * Called from ClientReceiveMessageEvents.GAME on the client thread.
+     */
+    public static void onGameMessage(Text message) {
+        long arrivalNano = System.nanoTime();
+        long sequence = nextSequence++;
+        if (!asyncMode) {
+            // Delivered right away unless older lines are still with the worker
+            classified.offer(classifyInline(sequence, message, arrivalNano));
+            drain();
+            return;
+        }
+        if (!incoming.offer(new Incoming(sequence, message.getString(), arrivalNano))) {
+            // Queue full (chat flood): classify inline rather than lose a death line; the result
+            // still waits behind the backlog the worker has not reached
+            classified.offer(classifyInline(sequence, message, arrivalNano));
+        }
+    }
+
+    /**
+     * Deliver the events of every line classified since the last call, in arrival order.
+     * A line whose predecessors are still being classified waits for a later call.
+     * Called at the start of END_CLIENT_TICK.
+     */
+    public static void drain() {
+        Classified next;
+        while ((next = classified.poll()) != null) {
+            if (next.sequence >= nextDelivery) {
+                ready.put(next.sequence, next);
+            }
+        }
+        while ((next = ready.remove(nextDelivery)) != null) {
+            nextDelivery++;
+            for (int i = 0; i < next.events.size(); i++) {
+                dispatch(next.events.get(i), next.arrivalNano);
+            }
+        }
+    }
+
+    /**
+     * Drop pending messages and events (e.g. on disconnect)
+     */
+    public static void clear() {
+        incoming.clear();
+        classified.clear();
+        ready.clear();
+        nextDelivery = nextSequence; // Results still in flight from the worker are stale and skipped
+    }
+
+    // Toggle off-thread classification
+    public static void toggleAsyncMode() {
+        asyncMode = !asyncMode;
+        if (!asyncMode) {
+            drain(); // Lines still queued are classified by the worker and delivered in order later
+        }
+        if (MinecraftClient.getInstance().player != null) {
+            String statusMessage = asyncMode ? 
+                "§a[Ghost Detector] Off-thread chat classification ENABLED" : 
+                "§c[Ghost Detector] Off-thread chat classification DISABLED";
+            MinecraftClient.getInstance().player.sendMessage(Text.literal(statusMessage), false);
+        }
+        TaggerMod.LOGGER.info("[ChatPipeline] Async mode toggled to: {}", asyncMode);
+    }
+
+    public static boolean isAsyncModeEnabled() {
+        return asyncMode;
+    }
+
+    private static void workerLoop() {
+        ChatClassifier classifier = new ChatClassifier();
+        while (true) {
+            Incoming next;
+            try {
+                next = incoming.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            classified.offer(classify(classifier, next.sequence, next.content, next.arrivalNano));
+        }
+    }
+
+    // Both classify paths always yield a result, even for a line that failed, so delivery never
+    // waits on a missing sequence
+
+    // Client thread: walks the Text itself, no flattened copy
+    private static Classified classifyInline(long sequence, Text message, long arrivalNano) {
+        try {
+            return classified(sequence, ChatClassifier.CLIENT.classify(message), arrivalNano);
+        } catch (RuntimeException e) {
+            return failed(sequence, arrivalNano, e);
+        }
+    }
+
+    private static Classified classify(ChatClassifier classifier, long sequence, String content, long arrivalNano) {
+        try {
+            return classified(sequence, classifier.classify(content), arrivalNano);
+        } catch (RuntimeException e) {
+            return failed(sequence, arrivalNano, e);
+        }
+    }
+
+    private static Classified classified(long sequence, List<ChatEvent> found, long arrivalNano) {
+        // The classifier reuses its list
+        return new Classified(sequence, found.isEmpty() ? List.of() : List.copyOf(found), arrivalNano);
+    }
+
+    private static Classified failed(long sequence, long arrivalNano, RuntimeException e) {
+        TaggerMod.LOGGER.error("[ChatPipeline] Failed to classify message: {}", e.getMessage());
+        return new Classified(sequence, List.of(), arrivalNano);
+    }
+
+    // Route a classified chat event to the detector that handles it
+    private static void dispatch(ChatEvent event, long arrivalNano) {
+        switch (event.type) {
+            case KIT_LOAD -> KitDetector.onKitLoad(event.player); // Add kit detection
+            case DEATH -> {
+                GhostTotemDetector.onDeathMessage(event.player, arrivalNano); // Detect player death via chat
+                OpponentGhostTracker.onDeathMessage(event.player, arrivalNano); // And deaths of the players we fight
+            }
+        }
+    }
+
+    private static class Incoming {
+        final long sequence;
+        final String content;
+        final long arrivalNano;
+
+        Incoming(long sequence, String content, long arrivalNano) {
+            this.sequence = sequence;
+            this.content = content;
+            this.arrivalNano = arrivalNano;
+        }
+    }
+
+    private static class Classified {
+        final long sequence;
+        final List<ChatEvent> events;
+        final long arrivalNano;
+
+        Classified(long sequence, List<ChatEvent> events, long arrivalNano) {
+            this.sequence = sequence;
+            this.events = events;
+            this.arrivalNano = arrivalNano;
+        }
+    }
+}
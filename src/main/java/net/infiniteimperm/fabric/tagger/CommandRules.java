@@ -0,0 +1,189 @@
+package net.infiniteimperm.fabric.tagger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Which outgoing commands are gated on gear readiness, compiled once into a trie over the command
+ * name and its aliases. Matching walks the first word of the command in place (ASCII
+ * case-insensitive, no toLowerCase/trim/split), so commands that are not gated cost a few array
+ * reads. Readiness verdicts are derived from the PlayerSnapshot and cached until the snapshot
+ * changes, so a gated command is a lookup rather than an inventory walk.
+ * Client thread only.
+ */
+public final class CommandRules {
+
+    // Readiness checks, as bits
+    public static final int CHECK_ARMOR = 1; // Every worn damageable armor piece at MIN_ARMOR_DURABILITY or better
+    public static final int CHECK_TOTEM = 2; // At least one totem carried
+    public static final int CHECK_HOTBAR = 4; // No empty hotbar slots (fully kitted)
+
+    static final float MIN_ARMOR_DURABILITY = 0.95f; // 95%
+
+    /**
+     * A gated command family.
+     */
+    public static final class Rule {
+        public final byte id; // Stored in COMMAND_BLOCK journal records, never reuse
+        public final String name;
+        public final int checks;
+        final String[] aliases;
+
+        Rule(int id, String name, int checks, String... aliases) {
+            this.id = (byte) id;
+            this.name = name;
+            this.checks = checks;
+            this.aliases = aliases;
+        }
+    }
+
+    public static final Rule QUEUE = new Rule(1, "queue", CHECK_ARMOR, "q", "queue", "rtpqueue", "rtpq");
+    public static final Rule DUEL = new Rule(2, "duel", CHECK_ARMOR | CHECK_TOTEM, "duel", "duels", "1v1");
+    public static final Rule RTP = new Rule(3, "rtp", CHECK_TOTEM | CHECK_HOTBAR, "rtp", "wild", "randomtp");
+    // Kit commands are deliberately not gated: rekitting is how the player fixes a failed verdict
+
+    private static final Rule[] RULES = {QUEUE, DUEL, RTP};
+
+    // Trie over [a-z0-9]; node 0 is the root, -1 = no child
+    private static final int ALPHABET = 36;
+    private static int[][] children;
+    private static Rule[] terminal;
+
+    // Cached verdict: bitmask of failed checks, valid for one snapshot version
+    private static long verdictVersion = -1;
+    private static int failedChecks = 0;
+
+    static {
+        compile();
+    }
+
+    private CommandRules() {
+    }
+
+    private static void compile() {
+        List<int[]> nodes = new ArrayList<>();
+        List<Rule> ends = new ArrayList<>();
+        nodes.add(newNode());
+        ends.add(null);
+        for (Rule rule : RULES) {
+            for (String alias : rule.aliases) {
+                int node = 0;
+                for (int i = 0; i < alias.length(); i++) {
+                    int symbol = symbolOf(alias.charAt(i));
+                    if (symbol < 0) {
+                        throw new IllegalArgumentException("Unsupported character in command alias: " + alias);
+                    }
+                    if (nodes.get(node)[symbol] < 0) {
+                        nodes.get(node)[symbol] = nodes.size();
+                        nodes.add(newNode());
+                        ends.add(null);
+                    }
+                    node = nodes.get(node)[symbol];
+                }
+                ends.set(node, rule);
+            }
+        }
+        children = nodes.toArray(new int[0][]);
+        terminal = ends.toArray(new Rule[0]);
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    private static int symbolOf(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + (c - '0');
+        }
+        return -1;
+    }
+
+    /**
+     * Name of the rule with the given id (journal records), "unknown" for 0 or an unknown id
+     */
+    public static String ruleName(byte id) {
+        for (Rule rule : RULES) {
+            if (rule.id == id) {
+                return rule.name;
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * The rule gating this command (without the leading slash), or null if it is not gated.
+     * Only the first word counts: "duel Steve" matches DUEL.
+     */
+    public static Rule match(String command) {
+        int length = command.length();
+        int i = 0;
+        while (i < length && command.charAt(i) == ' ') {
+            i++;
+        }
+        int node = 0;
+        for (; i < length; i++) {
+            char c = command.charAt(i);
+            if (c == ' ') {
+                break;
+            }
+            int symbol = symbolOf(c);
+            if (symbol < 0) {
+                return null;
+            }
+            node = children[node][symbol];
+            if (node < 0) {
+                return null;
+            }
+        }
+        return terminal[node];
+    }
+
+    /**
+     * Bitmask of this rule's checks that currently fail (0 = ready).
+     */
+    public static int failedChecks(Rule rule) {
+        PlayerSnapshot snapshot = PlayerSnapshot.current();
+        if (snapshot.getVersion() != verdictVersion) {
+            // Re-derive all checks once per snapshot change; every rule then masks the same bits
+            int failed = 0;
+            if (snapshot.getLowestArmorDurability() < MIN_ARMOR_DURABILITY) {
+                failed |= CHECK_ARMOR;
+            }
+            if (snapshot.getTotemCount() == 0) {
+                failed |= CHECK_TOTEM;
+            }
+            if (snapshot.getEmptyHotbarSlots() > 0) {
+                failed |= CHECK_HOTBAR;
+            }
+            failedChecks = failed;
+            verdictVersion = snapshot.getVersion();
+        }
+        return failedChecks & rule.checks;
+    }
+
+    /**
+     * Short description of failed checks for the warning message, e.g. "damaged armor, no totem".
+     */
+    public static String describe(int failed) {
+        StringBuilder reasons = new StringBuilder();
+        if ((failed & CHECK_ARMOR) != 0) {
+            reasons.append("damaged armor");
+        }
+        if ((failed & CHECK_TOTEM) != 0) {
+            reasons.append(reasons.length() > 0 ? ", " : "").append("no totem");
+        }
+        if ((failed & CHECK_HOTBAR) != 0) {
+            reasons.append(reasons.length() > 0 ? ", " : "").append("empty hotbar slots");
+        }
+        return reasons.toString();
+    }
+}
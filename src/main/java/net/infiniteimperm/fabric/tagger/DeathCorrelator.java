@@ -0,0 +1,168 @@
+package net.infiniteimperm.fabric.tagger;
+
+/**
+ * Correlates the separate signals that reveal the local player's death into one death event.
+ * Signals arriving within windowMillis of the previous one belong to the same event (the window
+ * slides with each signal), and the event is closed early when the player is seen alive again
+ * (close(), on respawn), so a second death right after an instant respawn is its own event.
+ * The first strong signal of an event is the one that gets reported, so detection latency is that
+ * of whichever path fires first; later signals are merged into the event and raise its confidence
+ * instead of producing duplicate reports.
+ * A weak signal (inventory clear) never reports on its own and never times the death: it only
+ * joins the event, and the detector decides from signalNanos() whether it belongs to the death.
+ * Client thread only (DetectorClock time, so the replay harness can drive it).
+ */
+public final class DeathCorrelator {
+
+    // Signal bits
+    public static final int HEALTH = 1; // Health packet with health <= 0
+    public static final int ALIVE = 1 << 1; // Alive -> dead transition seen by the tick
+    public static final int SPECTATOR = 1 << 2; // Switched to spectator
+    public static final int CHAT = 1 << 3; // Our own death line in chat
+    public static final int INVENTORY_CLEAR = 1 << 4; // Inventory wiped while holding a totem
+
+    private static final int STRONG = HEALTH | ALIVE | SPECTATOR | CHAT;
+    private static final String[] NAMES = {"health", "alive", "gamemode", "chat", "inventory clear"};
+    // Confidence each signal adds; health and alive are two views of the same fact
+    private static final float[] WEIGHTS = {0.4f, 0.2f, 0.4f, 0.4f, 0.2f};
+
+    static long windowMillis = 1500; // Non-final so the replay harness can try alternatives
+
+    private static final long[] signalNanos = new long[NAMES.length];
+    private static int signals = 0; // Bits seen in the open event, 0 = no event open
+    private static long firstNanos = 0;
+    private static long strongNanos = 0; // Earliest strong signal, 0 = none yet
+    private static long lastNanos = 0;
+    private static boolean reported = false;
+    private static long eventId = 0; // Incremented per opened event
+
+    private DeathCorrelator() {
+    }
+
+    /**
+     * Feed one death signal.
+     * @param timeNano when the signal happened (network arrival where known), DetectorClock time
+     * @return true if this is the first strong signal of the event, i.e. the death should be reported now
+     */
+    public static boolean signal(int signal, long timeNano) {
+        expire(timeNano);
+        if (signals == 0) {
+            eventId++;
+            firstNanos = timeNano;
+            lastNanos = timeNano;
+        } else if (timeNano < firstNanos) {
+            firstNanos = timeNano; // Stamped earlier than the signal that opened the event
+        }
+        lastNanos = Math.max(lastNanos, timeNano);
+
+        int index = Integer.numberOfTrailingZeros(signal);
+        boolean repeated = (signals & signal) != 0;
+        if (!repeated) {
+            signalNanos[index] = timeNano;
+        }
+        signals |= signal;
+        if ((signal & STRONG) != 0 && (strongNanos == 0 || timeNano < strongNanos)) {
+            strongNanos = timeNano;
+        }
+
+        boolean report = !reported && (signal & STRONG) != 0;
+        if (report) {
+            reported = true;
+            DetectorLog.info("[DeathCorrelator] Death reported on {} signal (confidence {})", NAMES[index], confidence());
+        } else if (!repeated) {
+            DetectorLog.info("[DeathCorrelator] Merged {} signal +{} ms into death event (confidence {})",
+                NAMES[index], (timeNano - firstNanos) / 1_000_000, confidence());
+        }
+        return report;
+    }
+
+    /**
+     * Earliest strong signal of the open event, the best estimate of when the death happened
+     * (0 while only weak signals were seen)
+     */
+    public static long eventStartNanos() {
+        return strongNanos;
+    }
+
+    /**
+     * When the open event first saw the given signal, or 0 if it has not
+     */
+    public static long signalNanos(int signal) {
+        return (signals & signal) != 0 ? signalNanos[Integer.numberOfTrailingZeros(signal)] : 0;
+    }
+
+    /**
+     * Identifies the open (or last) death event, e.g. to deduplicate reports of the same death
+     */
+    public static long eventId() {
+        return eventId;
+    }
+
+    /**
+     * Whether the open event (if still within the window at nowNano) has seen the given signal
+     */
+    public static boolean hasSignal(int signal, long nowNano) {
+        expire(nowNano);
+        return (signals & signal) != 0;
+    }
+
+    /**
+     * Sum of the weights of the distinct signals seen, capped at 1
+     */
+    public static float confidence() {
+        float total = 0;
+        for (int i = 0; i < NAMES.length; i++) {
+            if ((signals & (1 << i)) != 0) {
+                total += WEIGHTS[i];
+            }
+        }
+        return Math.min(1.0f, Math.round(total * 10) / 10.0f);
+    }
+
+    public static String name(int signal) {
+        return NAMES[Integer.numberOfTrailingZeros(signal)];
+    }
+
+    /**
+     * Wall-clock time of the open event's chat signal, or 0 (flight recorder field)
+     */
+    public static long chatSignalMillis() {
+        if ((signals & CHAT) == 0) {
+            return 0;
+        }
+        return DetectorClock.currentTimeMillis() - (DetectorClock.nanoTime() - signalNanos[Integer.numberOfTrailingZeros(CHAT)]) / 1_000_000;
+    }
+
+    public static void reset() {
+        signals = 0;
+        firstNanos = 0;
+        strongNanos = 0;
+        lastNanos = 0;
+        reported = false;
+    }
+
+    /**
+     * The player is alive again (respawned): close the open event so the next death is reported
+     */
+    public static void close() {
+        if (signals != 0) {
+            closeEvent("respawn");
+        }
+    }
+
+    // Close the open event once no signal arrived for windowMillis
+    private static void expire(long nowNano) {
+        if (signals == 0 || nowNano - lastNanos <= windowMillis * 1_000_000L) {
+            return;
+        }
+        closeEvent("window");
+    }
+
+    private static void closeEvent(String cause) {
+        if (reported || TaggerMod.DEBUG_MODE) {
+            DetectorLog.info("[DeathCorrelator] Death event closed on {}: {} signal(s) over {} ms, confidence {}{}",
+                cause, Integer.bitCount(signals), (lastNanos - firstNanos) / 1_000_000, confidence(), reported ? "" : " (not reported)");
+        }
+        reset();
+    }
+}
@@ -0,0 +1,362 @@
+package net.infiniteimperm.fabric.tagger;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.text.Text;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of detections, stored as fixed-width binary records in a memory-mapped file
+ * (ghost-detector/journal.bin). Appending is a handful of puts into the mapping; queries read
+ * records by index, so paging through months of history never loads the whole file.
+ *
+ * Header (64 bytes): int magic 'GDJN', short version, short record size, long record count.
+ * Record (48 bytes): long epochMillis, byte type, byte hand, short version, int ticks,
+ * long durationNanos, int serverHash, int opponentHash, short centiTps, short pingMillis,
+ * 12 reserved bytes.
+ * The journal is append-only, so one file holds records from every build that wrote to it: each
+ * record carries the layout version it was written with (0 in records from version 1 builds,
+ * which left the field zero), readers decode by that, and the header holds the newest version
+ * written. Layout versions:
+ * 1: centiTps/pingMillis reserved; COMMAND_BLOCK (then QUEUE_BLOCK) records only for /queue, hand unused.
+ * 2: centiTps is the estimated server tick rate x100 and pingMillis the averaged round trip
+ *    (-1 = unknown), both from ServerTiming at append time.
+ * 3: COMMAND_BLOCK records keep the id of the blocking CommandRules rule in the hand byte, and the
+ *    failed checks in ticks.
+ */
+public class DetectionJournal {
+
+    public static final byte TYPE_GHOST = 1;
+    public static final byte TYPE_POP = 2;
+    public static final byte TYPE_KIT_LOAD = 3;
+    public static final byte TYPE_COMMAND_BLOCK = 4;
+    public static final byte TYPE_OPPONENT_GHOST = 5;
+
+    public static final byte HAND_UNKNOWN = 0;
+    public static final byte HAND_MAIN = 1;
+    public static final byte HAND_OFF = 2;
+
+    private static final int MAGIC = 0x47444A4E; // "GDJN"
+    private static final short VERSION = 3;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 48;
+    private static final int COUNT_OFFSET = 8;
+    private static final int GROW_RECORDS = 4096; // Mapping grows ~192 KiB at a time
+
+    private static FileChannel channel;
+    private static MappedByteBuffer mapping;
+    private static long capacity; // Records that fit in the current mapping
+    private static long count;
+    private static boolean failed = false;
+    private static int serverHash = 0;
+
+    // Names seen this session, so history can show names for the opponent hashes it stores
+    private static final int MAX_KNOWN_NAMES = 512;
+    private static final Int2ObjectOpenHashMap<String> knownNames = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * Remember the server we are connected to; its address hash is stored with every record.
+     */
+    public static void onJoin(MinecraftClient client) {
+        ServerInfo server = client.getCurrentServerEntry();
+        serverHash = server == null ? 0 : server.address.toLowerCase().hashCode();
+    }
+
+    public static int nameHash(String name) {
+        if (name == null) {
+            return 0;
+        }
+        int hash = name.hashCode();
+        if (!knownNames.containsKey(hash)) {
+            if (knownNames.size() >= MAX_KNOWN_NAMES) {
+                knownNames.clear(); // Long session: keep the names of recent fights
+            }
+            knownNames.put(hash, name);
+        }
+        return hash;
+    }
+
+    public static byte hand(String handType) {
+        return switch (handType) {
+            case "Mainhand" -> HAND_MAIN;
+            case "Offhand" -> HAND_OFF;
+            default -> HAND_UNKNOWN;
+        };
+    }
+
+    /**
+     * Append one record. Called from the client thread.
+     */
+    public static synchronized void append(byte type, byte hand, long durationNanos, long ticks, int opponentHash) {
+        if (!ensureOpen() || !ensureCapacity(count + 1)) {
+            return;
+        }
+        int offset = (int) (HEADER_SIZE + count * RECORD_SIZE);
+        mapping.putLong(offset, System.currentTimeMillis());
+        mapping.put(offset + 8, type);
+        mapping.put(offset + 9, hand);
+        mapping.putShort(offset + 10, VERSION);
+        mapping.putInt(offset + 12, (int) Math.min(ticks, Integer.MAX_VALUE));
+        mapping.putLong(offset + 16, durationNanos);
+        mapping.putInt(offset + 24, serverHash);
+        mapping.putInt(offset + 28, opponentHash);
+        mapping.putShort(offset + 32, (short) Math.round(ServerTiming.getTps() * 100));
+        mapping.putShort(offset + 34, (short) Math.min(ServerTiming.getPingMillis(), Short.MAX_VALUE));
+        count++;
+        mapping.putLong(COUNT_OFFSET, count); // Publish the record only after it is fully written
+    }
+
+    public static synchronized long size() {
+        return ensureOpen() ? count : 0;
+    }
+
+    /**
+     * Read the record at the given index (0 = oldest) into {@code out}.
+     */
+    public static synchronized boolean read(long index, Entry out) {
+        if (!ensureOpen() || index < 0 || index >= count) {
+            return false;
+        }
+        readAt(mapping, index, out);
+        return true;
+    }
+
+    /**
+     * Show one page of history in chat, newest first.
+     */
+    public static void showHistory(FabricClientCommandSource source, int page) {
+        final int pageSize = 10;
+        long total = size();
+        if (total == 0) {
+            source.sendFeedback(Text.literal("§7[Ghost Detector] Journal is empty"));
+            return;
+        }
+        long pages = (total + pageSize - 1) / pageSize;
+        long first = total - 1 - (long) (page - 1) * pageSize;
+        if (first < 0) {
+            source.sendFeedback(Text.literal("§c[Ghost Detector] Only " + pages + " page(s) of history"));
+            return;
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        StringBuilder lines = new StringBuilder("§6Ghost Detector history §7(page " + page + "/" + pages + ", " + total + " records)");
+        Entry entry = new Entry();
+        for (long i = first; i > first - pageSize && i >= 0; i--) {
+            if (!read(i, entry)) {
+                break;
+            }
+            lines.append("\n§7").append(format.format(new Date(entry.epochMillis)))
+                .append(" §e").append(typeName(entry.type));
+            if (entry.type == TYPE_COMMAND_BLOCK) {
+                lines.append(" §f/").append(CommandRules.ruleName(entry.hand));
+                if (entry.ticks != 0) {
+                    lines.append(" §7(").append(CommandRules.describe((int) entry.ticks)).append(")");
+                }
+            }
+            if (entry.type == TYPE_GHOST || entry.type == TYPE_OPPONENT_GHOST) {
+                lines.append(" §f").append(handName(entry.hand))
+                    .append(" ").append(entry.durationNanos / 1_000_000).append("ms (").append(entry.ticks).append(" ticks)");
+                if (entry.centiTps > 0) {
+                    lines.append(" §7@ ").append(entry.centiTps / 100.0).append(" TPS");
+                    if (entry.pingMillis >= 0) {
+                        lines.append(", ").append(entry.pingMillis).append("ms");
+                    }
+                }
+            }
+            if (entry.opponentHash != 0) {
+                lines.append(" §8").append(opponentName(entry.opponentHash));
+            }
+        }
+        source.sendFeedback(Text.literal(lines.toString()));
+    }
+
+    /**
+     * Stream all records to a CSV file on a background thread.
+     * @param done receives the written file, or null on failure
+     */
+    public static void export(Consumer<Path> done) {
+        ByteBuffer view;
+        long total;
+        synchronized (DetectionJournal.class) {
+            if (!ensureOpen()) {
+                done.accept(null);
+                return;
+            }
+            view = mapping.duplicate();
+            total = count;
+        }
+
+        String fileName = "journal-export-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv";
+        Path file = directory().resolve(fileName);
+        Thread thread = new Thread(() -> {
+            Entry entry = new Entry();
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("time,type,hand_or_rule,duration_ms,ticks,server_hash,opponent_hash,tps,ping_ms\n");
+                for (long i = 0; i < total; i++) {
+                    readAt(view, i, entry);
+                    writer.write(format.format(new Date(entry.epochMillis)) + "," + typeName(entry.type) + ","
+                        + (entry.type == TYPE_COMMAND_BLOCK ? CommandRules.ruleName(entry.hand) : handName(entry.hand))
+                        + "," + (entry.durationNanos / 1_000_000.0) + "," + entry.ticks + ","
+                        + Integer.toHexString(entry.serverHash) + "," + Integer.toHexString(entry.opponentHash) + ","
+                        + (entry.centiTps > 0 ? String.valueOf(entry.centiTps / 100.0) : "") + ","
+                        + (entry.centiTps > 0 && entry.pingMillis >= 0 ? String.valueOf(entry.pingMillis) : "") + "\n");
+                }
+                TaggerMod.LOGGER.info("[Journal] Exported {} records to {}", total, file);
+                done.accept(file);
+            } catch (IOException e) {
+                TaggerMod.LOGGER.error("[Journal] Export failed: {}", e.getMessage());
+                done.accept(null);
+            }
+        }, "GhostDetector-JournalExport");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static String typeName(byte type) {
+        return switch (type) {
+            case TYPE_GHOST -> "GHOST";
+            case TYPE_POP -> "POP";
+            case TYPE_KIT_LOAD -> "KIT_LOAD";
+            case TYPE_COMMAND_BLOCK -> "COMMAND_BLOCK";
+            case TYPE_OPPONENT_GHOST -> "OPPONENT_GHOST";
+            default -> "UNKNOWN";
+        };
+    }
+
+    public static String handName(byte hand) {
+        return switch (hand) {
+            case HAND_MAIN -> "Mainhand";
+            case HAND_OFF -> "Offhand";
+            default -> "Unknown";
+        };
+    }
+
+    /**
+     * Name for an opponent hash if it was seen this session, otherwise the hash in hex.
+     */
+    public static String opponentName(int hash) {
+        if (hash == 0) {
+            return "-";
+        }
+        String name = knownNames.get(hash);
+        return name != null ? name : "#" + Integer.toHexString(hash);
+    }
+
+    private static void readAt(ByteBuffer buffer, long index, Entry out) {
+        int offset = (int) (HEADER_SIZE + index * RECORD_SIZE);
+        out.epochMillis = buffer.getLong(offset);
+        out.type = buffer.get(offset + 8);
+        out.hand = buffer.get(offset + 9);
+        out.version = (short) Math.max(1, buffer.getShort(offset + 10));
+        out.ticks = buffer.getInt(offset + 12);
+        out.durationNanos = buffer.getLong(offset + 16);
+        out.serverHash = buffer.getInt(offset + 24);
+        out.opponentHash = buffer.getInt(offset + 28);
+        if (out.version >= 2) {
+            out.centiTps = buffer.getShort(offset + 32);
+            out.pingMillis = buffer.getShort(offset + 34);
+        } else {
+            out.centiTps = 0;
+            out.pingMillis = -1;
+        }
+        if (out.version < 3 && out.type == TYPE_COMMAND_BLOCK) {
+            out.hand = CommandRules.QUEUE.id; // Only /queue was gated, and no rule id was stored
+            out.ticks = 0;
+        }
+    }
+
+    private static Path directory() {
+        return FabricLoader.getInstance().getGameDir().resolve("ghost-detector");
+    }
+
+    private static boolean ensureOpen() {
+        if (mapping != null) {
+            return true;
+        }
+        if (failed) {
+            return false;
+        }
+        try {
+            Files.createDirectories(directory());
+            channel = FileChannel.open(directory().resolve("journal.bin"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean fresh = channel.size() < HEADER_SIZE;
+            long existing = fresh ? 0 : (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            map(Math.max(existing, GROW_RECORDS));
+            if (fresh) {
+                mapping.putInt(0, MAGIC);
+                mapping.putShort(4, VERSION);
+                mapping.putShort(6, (short) RECORD_SIZE);
+                mapping.putLong(COUNT_OFFSET, 0);
+            } else if (mapping.getInt(0) != MAGIC || mapping.getShort(6) != RECORD_SIZE) {
+                throw new IOException("unrecognised journal header");
+            } else if (mapping.getShort(4) > VERSION) {
+                throw new IOException("journal version " + mapping.getShort(4) + " is newer than this build");
+            } else if (mapping.getShort(4) < VERSION) {
+                // Older records keep their own version and are still decoded by it
+                TaggerMod.LOGGER.info("[Journal] Upgrading journal from version {} to {}", mapping.getShort(4), VERSION);
+                mapping.putShort(4, VERSION);
+            }
+            count = mapping.getLong(COUNT_OFFSET);
+            return true;
+        } catch (IOException e) {
+            TaggerMod.LOGGER.error("[Journal] Could not open journal: {}", e.getMessage());
+            failed = true;
+            mapping = null;
+            return false;
+        }
+    }
+
+    private static boolean ensureCapacity(long records) {
+        if (records <= capacity) {
+            return true;
+        }
+        try {
+            map(capacity + GROW_RECORDS);
+            return true;
+        } catch (IOException e) {
+            TaggerMod.LOGGER.error("[Journal] Could not grow journal: {}", e.getMessage());
+            failed = true;
+            mapping = null;
+            return false;
+        }
+    }
+
+    // (Re)map the file for the given number of records; mapping past the end extends the file
+    private static void map(long records) throws IOException {
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + records * RECORD_SIZE);
+        capacity = records;
+    }
+
+    /**
+     * One decoded journal record (reused by readers)
+     */
+    public static class Entry {
+        public long epochMillis;
+        public byte type;
+        public byte hand;
+        public short version; // Layout the record was written with
+        public int ticks;
+        public long durationNanos;
+        public int serverHash;
+        public int opponentHash;
+        public short centiTps; // 0 in records written before TPS was recorded (version 1)
+        public short pingMillis;
+    }
+}
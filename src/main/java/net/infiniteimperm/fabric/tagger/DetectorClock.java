@@ -0,0 +1,42 @@
+package net.infiniteimperm.fabric.tagger;
+
+/**
+ * Time source for the detectors. Normally the system clocks; the replay harness switches it to a
+ * virtual clock so recorded fights run deterministically and much faster than real time.
+ */
+public class DetectorClock {
+
+    private static boolean virtual = false;
+    private static long virtualNanos = 0;
+    private static long virtualEpochMillis = 0; // Wall-clock time at virtualNanos == 0
+
+    public static long nanoTime() {
+        return virtual ? virtualNanos : System.nanoTime();
+    }
+
+    public static long currentTimeMillis() {
+        return virtual ? virtualEpochMillis + virtualNanos / 1_000_000 : System.currentTimeMillis();
+    }
+
+    /**
+     * Switch to a virtual clock starting at the given wall-clock time.
+     */
+    static void useVirtual(long startEpochMillis) {
+        virtual = true;
+        virtualNanos = 0;
+        virtualEpochMillis = startEpochMillis;
+    }
+
+    /**
+     * Move the virtual clock forward (it never goes backwards).
+     */
+    static void advanceTo(long nanos) {
+        if (nanos > virtualNanos) {
+            virtualNanos = nanos;
+        }
+    }
+
+    static void useSystem() {
+        virtual = false;
+    }
+}
@@ -0,0 +1,143 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+import org.apache.logging.log4j.Level;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logging front-end for the detector hot paths. In async mode (default) each call only enqueues
+ * a structured record (level, format, args) on a lock-free queue; a background thread does the
+ * message formatting and the log4j I/O, so a slow log appender can never stall the client thread
+ * in the frame that shows a ghost warning.
+ */
+public class DetectorLog {
+
+    private static final int MAX_PENDING = 8192; // Drop records beyond this rather than grow without bound
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final AtomicInteger dropped = new AtomicInteger();
+    private static volatile boolean asyncMode = true;
+    private static final Thread writer = new Thread(DetectorLog::writerLoop, "GhostDetector-Log");
+
+    static {
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static void info(String format, Object... args) {
+        log(Level.INFO, format, args);
+    }
+
+    public static void error(String format, Object... args) {
+        log(Level.ERROR, format, args);
+    }
+
+    /**
+     * Wraps an epoch-millis timestamp so it is only formatted as HH:mm:ss.SSS on the writer thread.
+     */
+    public static Object time(long epochMillis) {
+        return new LogTime(epochMillis);
+    }
+
+    private static void log(Level level, String format, Object[] args) {
+        if (!asyncMode) {
+            TaggerMod.LOGGER.log(level, format, args);
+            return;
+        }
+        int queued = pending.incrementAndGet();
+        if (queued > MAX_PENDING) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(new Entry(level, format, args));
+        if (queued == 1) {
+            LockSupport.unpark(writer); // Queue went from empty to non-empty
+        }
+    }
+
+    // Toggle between the async pipeline and direct synchronous logging
+    public static void toggleAsyncMode() {
+        asyncMode = !asyncMode;
+        if (!asyncMode) {
+            flush();
+        }
+        if (MinecraftClient.getInstance().player != null) {
+            String statusMessage = asyncMode ? 
+                "§a[Ghost Detector] Async logging ENABLED" : 
+                "§c[Ghost Detector] Async logging DISABLED";
+            MinecraftClient.getInstance().player.sendMessage(Text.literal(statusMessage), false);
+        }
+        TaggerMod.LOGGER.info("[DetectorLog] Async mode toggled to: {}", asyncMode);
+    }
+
+    public static boolean isAsyncModeEnabled() {
+        return asyncMode;
+    }
+
+    /**
+     * Write out everything still queued on the calling thread (used on shutdown and mode switch).
+     */
+    public static void flush() {
+        drain();
+    }
+
+    // Sleeps until log() unparks it for the first record after the queue ran empty
+    private static void writerLoop() {
+        while (true) {
+            drain();
+            if (pending.get() == 0) {
+                LockSupport.park();
+            }
+        }
+    }
+
+    private static synchronized void drain() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            pending.decrementAndGet();
+            TaggerMod.LOGGER.log(entry.level, entry.format, entry.args);
+        }
+        int lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            TaggerMod.LOGGER.warn("[DetectorLog] Dropped {} log records (queue full)", lost);
+        }
+    }
+
+    /**
+     * One structured log record; formatting is deferred to the writer thread.
+     */
+    private static class Entry {
+        final Level level;
+        final String format;
+        final Object[] args;
+
+        Entry(Level level, String format, Object[] args) {
+            this.level = level;
+            this.format = format;
+            this.args = args;
+        }
+    }
+
+    private static class LogTime {
+        final long epochMillis;
+
+        LogTime(long epochMillis) {
+            this.epochMillis = epochMillis;
+        }
+
+        @Override
+        public String toString() {
+            return TIME_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+        }
+    }
+}
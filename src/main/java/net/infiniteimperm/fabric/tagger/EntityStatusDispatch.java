@@ -0,0 +1,61 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.network.packet.s2c.play.EntityStatusS2CPacket;
+
+import java.util.Arrays;
+
+/**
+ * Routes entity status packets to the features that care about a specific status code.
+ * The server sends one of these for every hurt, death, particle and animation of every entity in
+ * range, so the dispatch is a table indexed by the status byte: statuses nobody registered for
+ * cost one array load and return. TotemPopMixin feeds it on the client thread.
+ */
+public final class EntityStatusDispatch {
+
+    public static final byte DEATH = 3; // Living entity died (death animation)
+    public static final byte TOTEM_POP = 35; // Totem of Undying used
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param entityId raw entity id from the packet; resolve against the world only if needed
+         * @param packet the packet, e.g. for PacketTimestamps lookups
+         */
+        void onStatus(int entityId, EntityStatusS2CPacket packet);
+    }
+
+    // Copy-on-write per status; registration happens once at startup
+    private static final Listener[][] listeners = new Listener[256][];
+
+    private EntityStatusDispatch() {
+    }
+
+    public static void register(byte status, Listener listener) {
+        int index = status & 0xFF;
+        Listener[] current = listeners[index];
+        if (current == null) {
+            listeners[index] = new Listener[] { listener };
+        } else {
+            Listener[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = listener;
+            listeners[index] = grown;
+        }
+    }
+
+    /**
+     * True when some feature listens for this status (lets the mixin skip its perf timing too)
+     */
+    public static boolean hasListeners(byte status) {
+        return listeners[status & 0xFF] != null;
+    }
+
+    public static void dispatch(byte status, int entityId, EntityStatusS2CPacket packet) {
+        Listener[] registered = listeners[status & 0xFF];
+        if (registered == null) {
+            return;
+        }
+        for (Listener listener : registered) {
+            listener.onStatus(entityId, packet);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fixed-size ring buffer of the last {@link #CAPACITY} client ticks, stored as parallel
+ * primitive arrays so recording a tick never allocates. When GhostTotemDetector reports a ghost
+ * the buffer is copied and written to a compact binary file under the game directory.
+ *
+ * File layout (big-endian): int magic 'GDFR', short version, int record count, then per record
+ * long tick, long nanoTime, byte selectedSlot, int mainItemId, int offItemId, float health,
+ * byte gameMode (-1 = unknown), long popNanoTime, long chatDeathMillis, byte emptySlots.
+ */
+public class FlightRecorder {
+
+    public static final int CAPACITY = 256; // ~12.8 seconds at 20 TPS
+    public static final int MAGIC = 0x47444652; // "GDFR"
+    public static final short VERSION = 1;
+
+    private static final long[] tick = new long[CAPACITY];
+    private static final long[] nanoTime = new long[CAPACITY];
+    private static final byte[] selectedSlot = new byte[CAPACITY];
+    private static final int[] mainItemId = new int[CAPACITY];
+    private static final int[] offItemId = new int[CAPACITY];
+    private static final float[] health = new float[CAPACITY];
+    private static final byte[] gameMode = new byte[CAPACITY];
+    private static final long[] popNanoTime = new long[CAPACITY];
+    private static final long[] chatDeathMillis = new long[CAPACITY];
+    private static final byte[] emptySlots = new byte[CAPACITY];
+
+    private static int next = 0; // Index the next record is written to
+    private static int size = 0;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GhostDetector-FlightRecorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Record one tick. Called from the client thread; never allocates.
+     */
+    public static void record(long gameTick, long now, int slot, int mainId, int offId, float hp,
+                              int mode, long popNano, long chatDeathTime, int empty) {
+        int i = next;
+        tick[i] = gameTick;
+        nanoTime[i] = now;
+        selectedSlot[i] = (byte) slot;
+        mainItemId[i] = mainId;
+        offItemId[i] = offId;
+        health[i] = hp;
+        gameMode[i] = (byte) mode;
+        popNanoTime[i] = popNano;
+        chatDeathMillis[i] = chatDeathTime;
+        emptySlots[i] = (byte) empty;
+
+        next = (i + 1) % CAPACITY;
+        if (size < CAPACITY) {
+            size++;
+        }
+    }
+
+    /**
+     * Forget everything recorded so far (e.g. after leaving a world).
+     */
+    public static void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Copy the buffer in chronological order and write it to ghost-detector/flight-*.bin on a
+     * background thread. Called on detection, so the copy is the only client-thread cost.
+     */
+    public static void dump(String reason) {
+        int count = size;
+        if (count == 0) {
+            return;
+        }
+
+        // Snapshot oldest-to-newest so the writer thread never races the next record() call
+        int start = (next - count + CAPACITY) % CAPACITY;
+        long[] tickCopy = new long[count];
+        long[] nanoCopy = new long[count];
+        byte[] slotCopy = new byte[count];
+        int[] mainCopy = new int[count];
+        int[] offCopy = new int[count];
+        float[] healthCopy = new float[count];
+        byte[] modeCopy = new byte[count];
+        long[] popCopy = new long[count];
+        long[] chatCopy = new long[count];
+        byte[] emptyCopy = new byte[count];
+        for (int n = 0; n < count; n++) {
+            int i = (start + n) % CAPACITY;
+            tickCopy[n] = tick[i];
+            nanoCopy[n] = nanoTime[i];
+            slotCopy[n] = selectedSlot[i];
+            mainCopy[n] = mainItemId[i];
+            offCopy[n] = offItemId[i];
+            healthCopy[n] = health[i];
+            modeCopy[n] = gameMode[i];
+            popCopy[n] = popNanoTime[i];
+            chatCopy[n] = chatDeathMillis[i];
+            emptyCopy[n] = emptySlots[i];
+        }
+
+        String fileName = "flight-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".bin";
+        Path file = FabricLoader.getInstance().getGameDir().resolve("ghost-detector").resolve(fileName);
+
+        WRITER.execute(() -> {
+            try {
+                Files.createDirectories(file.getParent());
+                try (OutputStream out = Files.newOutputStream(file);
+                     DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+                    data.writeInt(MAGIC);
+                    data.writeShort(VERSION);
+                    data.writeInt(count);
+                    for (int n = 0; n < count; n++) {
+                        data.writeLong(tickCopy[n]);
+                        data.writeLong(nanoCopy[n]);
+                        data.writeByte(slotCopy[n]);
+                        data.writeInt(mainCopy[n]);
+                        data.writeInt(offCopy[n]);
+                        data.writeFloat(healthCopy[n]);
+                        data.writeByte(modeCopy[n]);
+                        data.writeLong(popCopy[n]);
+                        data.writeLong(chatCopy[n]);
+                        data.writeByte(emptyCopy[n]);
+                    }
+                }
+                TaggerMod.LOGGER.info("[FlightRecorder] Wrote {} ticks to {} ({})", count, file, reason);
+            } catch (IOException e) {
+                TaggerMod.LOGGER.error("[FlightRecorder] Failed to write {}: {}", file, e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.text.Text;
+
+import java.util.HashMap;
+
+/**
+ * Per-server distributions of ghost timings, kept in fixed-memory {@link LogHistogram}s so the
+ * shape (e.g. whether 49ms is a server-tick artifact) can be inspected with /gd stats instead of
+ * grepping logs. Recording is a few array writes on the client thread.
+ */
+public class GhostStats {
+
+    private static final HashMap<String, ServerStats> byServer = new HashMap<>();
+    private static String currentServer = "singleplayer";
+    private static ServerStats current = stats(currentServer);
+
+    /**
+     * Switch to the stats of the server we just joined.
+     */
+    public static void onJoin(MinecraftClient client) {
+        ServerInfo server = client.getCurrentServerEntry();
+        currentServer = server == null ? "singleplayer" : server.address.toLowerCase();
+        current = stats(currentServer);
+    }
+
+    /**
+     * Record one ghost detection.
+     * @param holdNanos totem hold duration (equip to death), or -1 if no totem was tracked
+     * @param ticksHeld client ticks between equip and death, or -1 if no totem was tracked
+     * @param popToDeathNanos time since the last totem pop, or -1 if there was none
+     * @param latencyNanos time from the death signal arriving to the detection being reported
+     */
+    public static void recordGhost(long holdNanos, long ticksHeld, long popToDeathNanos, long latencyNanos) {
+        if (holdNanos >= 0) {
+            current.holdMicros.record(holdNanos / 1_000);
+            current.equipToDeathTicks.record(ticksHeld);
+        }
+        if (popToDeathNanos >= 0) {
+            current.popToDeathMillis.record(popToDeathNanos / 1_000_000);
+        }
+        current.latencyMicros.record(latencyNanos / 1_000);
+    }
+
+    public static void show(FabricClientCommandSource source) {
+        StringBuilder lines = new StringBuilder("§6Ghost Detector stats §7(" + currentServer + ", p50/p90/p99/max)");
+        appendLine(lines, "Hold duration", current.holdMicros, 1_000.0, "ms");
+        appendLine(lines, "Equip to death", current.equipToDeathTicks, 1.0, " ticks");
+        appendLine(lines, "Pop to death", current.popToDeathMillis, 1.0, "ms");
+        appendLine(lines, "Detection latency", current.latencyMicros, 1_000.0, "ms");
+        source.sendFeedback(Text.literal(lines.toString()));
+    }
+
+    private static void appendLine(StringBuilder lines, String label, LogHistogram histogram, double divisor, String unit) {
+        lines.append("\n§e").append(label).append(" §7(n=").append(histogram.count()).append("): §f");
+        if (histogram.count() == 0) {
+            lines.append("-");
+            return;
+        }
+        lines.append(format(histogram.percentile(50) / divisor)).append(" / ")
+            .append(format(histogram.percentile(90) / divisor)).append(" / ")
+            .append(format(histogram.percentile(99) / divisor)).append(" / ")
+            .append(format(histogram.max() / divisor)).append(unit);
+    }
+
+    private static String format(double value) {
+        return value >= 100 || value == Math.rint(value) ? String.valueOf(Math.round(value)) : String.format("%.1f", value);
+    }
+
+    private static ServerStats stats(String server) {
+        return byServer.computeIfAbsent(server, key -> new ServerStats());
+    }
+
+    private static class ServerStats {
+        final LogHistogram holdMicros = new LogHistogram();
+        final LogHistogram equipToDeathTicks = new LogHistogram();
+        final LogHistogram popToDeathMillis = new LogHistogram();
+        final LogHistogram latencyMicros = new LogHistogram();
+    }
+}
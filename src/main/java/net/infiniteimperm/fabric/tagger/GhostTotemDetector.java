@@ -3,27 +3,22 @@ package net.infiniteimperm.fabric.tagger;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.item.ItemStack;
-import net.minecraft.item.Items;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.Item;
+import net.minecraft.network.packet.s2c.play.EntityStatusS2CPacket;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
-import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.GameMode;
-import net.minecraft.world.World;
 
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class GhostTotemDetector {
 
     private static long totemEquipTimeNano = 0;
     private static int lastCheckedSlot = -1; // Track the last known selected slot
-    private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss.SSS");
     private static float lastHealth = -1; // Track last known health
     private static boolean wasAlive = true; // Track whether player was alive last tick
     private static GameMode lastGameMode = null; // Track the last game mode
@@ -32,12 +27,15 @@ public class GhostTotemDetector {
     private static boolean wasHoldingTotemLastTick = false;
     private static long gameTickCounter = 0; // Count game ticks for detailed timing info
     private static long totemEquipGameTick = 0; // The game tick when totem was equipped
+    private static long lastTickNano = 0; // nanoTime at the end of the previous client tick
     
     // For diagnostic purposes - track if we've detected a ghost totem recently
     private static long lastGhostTotemTime = 0;
     private static long ghostTotemHoldTime = 0;
-    private static long lastTotemPopTime = 0; // Timestamp of last legitimate totem pop
-    private static long lastSelfDeathChatTime = 0; // When "<player> was killed" chat seen
+    private static long lastTotemPopNano = 0; // Network arrival (nanoTime) of last legitimate totem pop
+    // Hold that was running when the inventory was wiped, kept for the death event the wipe may be part of
+    private static long clearedTotemEquipNano = 0;
+    private static long clearedTotemEquipGameTick = 0;
     
     // Track which hand last held the totem ("Mainhand", "Offhand", or "Unknown")
     private static String lastTotemHand = "Unknown";
@@ -45,14 +43,29 @@ public class GhostTotemDetector {
     // Mode tracking and delayed message tracking
     private static boolean macroMode = false;
     private static boolean clipboardMode = true; // Default to clipboard mode
-    private static long lastGhostDetectionTime = 0;
-    private static boolean macroReminderScheduled = false;
+    private static TickScheduler.Timer macroReminder = null; // Pending "/gd macro" hint after a clipboard report
+    
+    // Event-driven mode: totem equip/unequip are driven by inventory packets (see InventoryPacketMixin)
+    // and the per-tick hand scan only runs on slot changes or as a periodic fallback
+    private static boolean eventDrivenMode = true;
+    
+    // Headless mode (replay harness): no MinecraftClient; detections only go to detectionListener
+    private static boolean headless = false;
+    private static String headlessSelfName = null;
+    private static DetectionListener detectionListener = null;
+    
+    // Ghost-via-inventory-clear thresholds (non-final so the replay harness can try alternatives)
+    static int inventoryClearEmptySlots = 27; // 75%+ of the 36 main slots empty
+    static long popWindowMillis = 2000; // A real pop this recent means the totem was used, not ghosted
     
     // Constants
     private static final double SECONDS_PER_TICK = 0.05; // 50ms per tick (20 ticks per second)
-
-    // Pattern to detect death chat messages like "<player> was killed" or "<player> was killed by <killer>" (with optional '!')
-    private static final Pattern CHAT_DEATH_PATTERN = Pattern.compile("([a-zA-Z0-9_]+) was killed(?: by [a-zA-Z0-9_]+)?!?", Pattern.CASE_INSENSITIVE);
+    private static final int FALLBACK_POLL_TICKS = 20; // Re-check held totem once a second in event-driven mode
+    private static final long CLEAR_DEATH_GAP_NANOS = 100_000_000L; // A wipe within 2 ticks of a death belongs to it
+    private static final double RENDER_DISTANCE = 16.0; // Standard chunk render distance
+    
+    // Reused for nearby-player lookups so detections don't allocate a result list
+    private static final List<PlayerEntity> NEARBY_PLAYERS = new ArrayList<>();
 
     // Toggle macro mode for chat macro functionality
     public static void toggleMacroMode() {
@@ -64,7 +77,7 @@ public class GhostTotemDetector {
                 "§c[Ghost Detector] Chat macro mode DISABLED";
             MinecraftClient.getInstance().player.sendMessage(Text.literal(statusMessage), false);
         }
-        TaggerMod.LOGGER.info("[GhostTotem] Macro mode toggled to: {}", macroMode);
+        DetectorLog.info("[GhostTotem] Macro mode toggled to: {}", macroMode);
     }
     
     // Toggle clipboard mode for clipboard functionality
@@ -77,7 +90,24 @@ public class GhostTotemDetector {
                 "§c[Ghost Detector] Clipboard mode DISABLED";
             MinecraftClient.getInstance().player.sendMessage(Text.literal(statusMessage), false);
         }
-        TaggerMod.LOGGER.info("[GhostTotem] Clipboard mode toggled to: {}", clipboardMode);
+        DetectorLog.info("[GhostTotem] Clipboard mode toggled to: {}", clipboardMode);
+    }
+    
+    // Toggle event-driven totem tracking (packet hooks) vs per-tick polling
+    public static void toggleEventDrivenMode() {
+        eventDrivenMode = !eventDrivenMode;
+        if (MinecraftClient.getInstance().player != null) {
+            String statusMessage = eventDrivenMode ? 
+                "§a[Ghost Detector] Event-driven totem tracking ENABLED" : 
+                "§c[Ghost Detector] Event-driven totem tracking DISABLED (polling every tick)";
+            MinecraftClient.getInstance().player.sendMessage(Text.literal(statusMessage), false);
+        }
+        DetectorLog.info("[GhostTotem] Event-driven mode toggled to: {}", eventDrivenMode);
+    }
+    
+    // Get current event-driven mode status
+    public static boolean isEventDrivenModeEnabled() {
+        return eventDrivenMode;
     }
     
     // Get current macro mode status
@@ -94,22 +124,13 @@ public class GhostTotemDetector {
     public static void tick(MinecraftClient client) {
         gameTickCounter++; // Increment our own tick counter for precise timing
         
-        // Handle delayed macro reminder message
-        if (macroReminderScheduled && lastGhostDetectionTime > 0) {
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastGhostDetectionTime >= 3000) { // 3 seconds
-                if (client.player != null) {
-                    client.player.sendMessage(Text.literal("§e[Ghost Detector] Do /gd macro for chat macro mode or /gd clipboard for clipboard mode (check your server's rules!)"), false);
-                }
-                macroReminderScheduled = false;
-            }
-        }
-        
         if (client.player == null || client.player.getInventory() == null) {
             // Reset if player or inventory is not available (e.g., title screen)
+            PlayerSnapshot.clear();
+            DeathCorrelator.reset();
             if (totemEquipTimeNano > 0 || lastCheckedSlot != -1 || lastHealth != -1) {
                 if (TaggerMod.DEBUG_MODE) {
-                    TaggerMod.LOGGER.info("[GhostTotem] Resetting state (player/inventory null)");
+                    DetectorLog.info("[GhostTotem] Resetting state (player/inventory null)");
                 }
                 totemEquipTimeNano = 0;
                 lastCheckedSlot = -1;
@@ -117,12 +138,12 @@ public class GhostTotemDetector {
                 wasAlive = true;
                 wasHoldingTotemLastTick = false;
                 lastGameMode = null;
+                FlightRecorder.clear();
             }
             return;
         }
 
         ClientPlayerEntity player = client.player;
-        int currentSlot = player.getInventory().selectedSlot;
         
         // Get current game mode - note this uses interactionManager which is client-side
         GameMode currentGameMode = null;
@@ -130,114 +151,174 @@ public class GhostTotemDetector {
             currentGameMode = client.interactionManager.getCurrentGameMode();
         }
         
+        // isDead() is the direct method to check if player is dead
+        tickPlayer(player, player.getInventory(), player.getId(), player.getHealth(), player.isDead(), currentGameMode);
+    }
+    
+    /**
+     * Per-tick detection for the local player, split from tick() so it can also run against a
+     * stand-in inventory (see the jmh benchmarks). player is only dereferenced when a death is reported.
+     */
+    static void tickPlayer(ClientPlayerEntity player, PlayerInventory inventory, int playerId,
+                           float currentHealth, boolean isDead, GameMode currentGameMode) {
+        int currentSlot = inventory.selectedSlot;
+        PacketTimestamps.setLocalPlayerId(playerId);
+        // The one inventory walk this tick; everything below reads the snapshot
+        PlayerSnapshot snapshot = PlayerSnapshot.capture(inventory, currentHealth, isDead, currentGameMode);
+        
         // Multiple ways to detect death
-        float currentHealth = player.getHealth();
-        boolean isDead = player.isDead(); // Direct method to check if player is dead
         boolean isAlive = !isDead && currentHealth > 0;
         
         // Check for transition to spectator mode (common server behavior for death)
         boolean spectatorTransition = false;
         if (lastGameMode != null && currentGameMode == GameMode.SPECTATOR && lastGameMode != GameMode.SPECTATOR) {
             spectatorTransition = true;
-            TaggerMod.LOGGER.info("[GhostTotem] Player transitioned to SPECTATOR mode (potential death)");
+            DetectorLog.info("[GhostTotem] Player transitioned to SPECTATOR mode (potential death)");
         }
         
         // If we were alive before but now we're not, or we entered spectator mode, we died
         if ((wasAlive && !isAlive) || spectatorTransition) {
-            TaggerMod.LOGGER.info("[GhostTotem] Death detected! isDead: {}, currentHealth: {}, spectatorTransition: {}, totem active: {}", 
+            DetectorLog.info("[GhostTotem] Death detected! isDead: {}, currentHealth: {}, spectatorTransition: {}, totem active: {}", 
                               isDead, currentHealth, spectatorTransition, totemEquipTimeNano > 0);
             
             // Log state of Death Screen as additional info
-            if (client.currentScreen != null) {
-                TaggerMod.LOGGER.info("[GhostTotem] Current screen: {}", client.currentScreen.getClass().getSimpleName());
+            MinecraftClient client = MinecraftClient.getInstance();
+            if (client == null) {
+                // Headless replay, no screen to report
+            } else if (client.currentScreen != null) {
+                DetectorLog.info("[GhostTotem] Current screen: {}", client.currentScreen.getClass().getSimpleName());
             } else {
-                TaggerMod.LOGGER.info("[GhostTotem] No current screen");
+                DetectorLog.info("[GhostTotem] No current screen");
             }
             
-            // Call our death handler, passing the spectator transition status
-            onPlayerDeath(player, spectatorTransition);
+            // Time the death by when the packet that caused it arrived, not by this tick
+            long tickNano = DetectorClock.nanoTime();
+            long deathTimeNano = spectatorTransition
+                ? PacketTimestamps.GAME_MODE.arrivedSince(lastTickNano, tickNano)
+                : PacketTimestamps.HEALTH.arrivedSince(lastTickNano, tickNano);
+            
+            // Report only if this is the first strong signal of the death; otherwise it is merged
+            int signal = spectatorTransition ? DeathCorrelator.SPECTATOR : DeathCorrelator.ALIVE;
+            if (DeathCorrelator.signal(signal, deathTimeNano)) {
+                onPlayerDeath(player, snapshot, spectatorTransition, DeathCorrelator.eventStartNanos(), DeathCorrelator.name(signal));
+            }
+        } else if ((!wasAlive && isAlive)
+                || (lastGameMode == GameMode.SPECTATOR && currentGameMode != null && currentGameMode != GameMode.SPECTATOR)) {
+            // Respawned: the death is over, so a quick second death opens a new event
+            DeathCorrelator.close();
         }
         wasAlive = isAlive;
         lastHealth = currentHealth;
         lastGameMode = currentGameMode;
         
+        // In event-driven mode inventory packets update the totem state as they arrive; the tick
+        // only re-checks when the selected hotbar slot changed locally or as a periodic fallback
+        boolean slotChanged = currentSlot != lastCheckedSlot;
+        if (!eventDrivenMode || slotChanged || gameTickCounter % FALLBACK_POLL_TICKS == 0) {
+            updateTotemState(player, snapshot, DetectorClock.nanoTime());
+        }
+        
+        // Log special debug for totem slot changes even if slot didn't change
+        if (slotChanged) {
+            if (TaggerMod.DEBUG_MODE) {
+                DetectorLog.info("[GhostTotem] Slot changed from {} to {}. New item: {}", 
+                                    lastCheckedSlot, currentSlot, snapshot.getMainHandItem());
+            }
+            lastCheckedSlot = currentSlot;
+        }
+        
+        lastTickNano = DetectorClock.nanoTime();
+        
+        // Capture this tick in the flight recorder (primitive fields only, no allocation)
+        FlightRecorder.record(gameTickCounter, lastTickNano, currentSlot,
+            Item.getRawId(snapshot.getMainHandItem()),
+            Item.getRawId(snapshot.getOffHandItem()),
+            currentHealth, currentGameMode == null ? -1 : currentGameMode.getId(),
+            lastTotemPopNano, DeathCorrelator.chatSignalMillis(), snapshot.getEmptySlots());
+    }
+    
+    /**
+     * Called by InventoryPacketMixin after the client applied an inventory or slot update, either
+     * from the server or from a local inventory click. Re-evaluates the held totem immediately so
+     * equip/unequip inside a single tick is not lost.
+     * @param eventTimeNano network arrival time of the packet (or now for local changes)
+     */
+    public static void onInventoryChanged(long eventTimeNano) {
+        ClientPlayerEntity player = MinecraftClient.getInstance().player;
+        if (player == null || player.getInventory() == null) {
+            return;
+        }
+        // Always re-capture so the overlay sees the change this frame, even in polling mode
+        PlayerSnapshot snapshot = PlayerSnapshot.refreshInventory(player.getInventory());
+        if (!eventDrivenMode) {
+            return;
+        }
+        applyInventoryChange(player, snapshot, player.isDead() || player.getHealth() <= 0, eventTimeNano);
+    }
+    
+    // Inventory-change handling shared with the replay harness (player may be null there)
+    static void applyInventoryChange(ClientPlayerEntity player, PlayerSnapshot snapshot, boolean dead, long eventTimeNano) {
+        // If the player died since the last tick, leave it to tick() so the death is handled
+        // before the unequip (inventory clears usually follow the fatal health update)
+        if (wasAlive && dead) {
+            return;
+        }
+        updateTotemState(player, snapshot, eventTimeNano);
+    }
+    
+    // Compares the held totem against the last observed state and fires equip/unequip handlers
+    private static void updateTotemState(ClientPlayerEntity player, PlayerSnapshot snapshot, long eventTimeNano) {
         // Check if player is currently holding a totem (in either hand)
-        boolean isHoldingTotemNow = isPlayerHoldingTotem(player);
+        boolean isHoldingTotemNow = snapshot.isHoldingTotem();
         
         // If totem state changed
         if (isHoldingTotemNow != wasHoldingTotemLastTick) {
             if (isHoldingTotemNow) {
                 // Player just started holding a totem
-                handleTotemEquipped(player);
+                handleTotemEquipped(snapshot, eventTimeNano);
             } else {
                 // Player just stopped holding a totem
-                handleTotemUnequipped(player);
-            }
-        }
-        
-        // Log special debug for totem slot changes even if slot didn't change
-        if (currentSlot != lastCheckedSlot) {
-            ItemStack currentItem = player.getInventory().main.get(currentSlot);
-            if (TaggerMod.DEBUG_MODE) {
-                TaggerMod.LOGGER.info("[GhostTotem] Slot changed from {} to {}. New item: {}", 
-                                    lastCheckedSlot, currentSlot, currentItem.getItem());
+                handleTotemUnequipped(player, snapshot, eventTimeNano);
             }
-            lastCheckedSlot = currentSlot;
         }
         
-        // Store the current totem state for next tick
+        // Store the current totem state for the next check
         wasHoldingTotemLastTick = isHoldingTotemNow;
     }
     
-    // Utility method to check if player is holding a totem in either hand
-    private static boolean isPlayerHoldingTotem(ClientPlayerEntity player) {
-        // Check main hand (current selected slot)
-        ItemStack mainHandItem = player.getInventory().main.get(player.getInventory().selectedSlot);
-        // Check off hand
-        ItemStack offHandItem = player.getOffHandStack();
-        
-        return mainHandItem.getItem() == Items.TOTEM_OF_UNDYING || 
-               offHandItem.getItem() == Items.TOTEM_OF_UNDYING;
-    }
-    
     // Called when a totem is equipped
-    private static void handleTotemEquipped(ClientPlayerEntity player) {
+    private static void handleTotemEquipped(PlayerSnapshot snapshot, long eventTimeNano) {
         // Only start the timer if it wasn't already running
         if (totemEquipTimeNano == 0) {
-            totemEquipTimeNano = System.nanoTime();
+            totemEquipTimeNano = eventTimeNano;
+            clearedTotemEquipNano = 0; // A hold ended by an earlier wipe is superseded by this one
             totemEquipGameTick = gameTickCounter;
             
             // Determine where the totem is (main or off hand)
-            ItemStack mainHandItem = player.getInventory().main.get(player.getInventory().selectedSlot);
-            ItemStack offHandItem = player.getOffHandStack();
-            
-            boolean inMainHand = mainHandItem.getItem() == Items.TOTEM_OF_UNDYING;
-            boolean inOffHand = offHandItem.getItem() == Items.TOTEM_OF_UNDYING;
-            
-            String location = inMainHand ? 
-                "main hand (slot " + player.getInventory().selectedSlot + ")" : 
-                (inOffHand ? "off hand" : "unknown");
+            String location = snapshot.isMainHandTotem() ? 
+                "main hand (slot " + snapshot.getSelectedSlot() + ")" : 
+                (snapshot.isOffHandTotem() ? "off hand" : "unknown");
             
             // Remember which hand so we can reference it later if inventory suddenly clears
-            lastTotemHand = inMainHand ? "Mainhand" : (inOffHand ? "Offhand" : "Unknown");
+            lastTotemHand = snapshot.getTotemHand();
             
             // Always log this regardless of DEBUG_MODE
-            TaggerMod.LOGGER.info("[GhostTotem] Totem equipped in {}. System time: {}, Game tick: {}", 
-                               location, TIME_FORMAT.format(new Date()), totemEquipGameTick);
+            DetectorLog.info("[GhostTotem] Totem equipped in {}. System time: {}, Game tick: {}", 
+                               location, DetectorLog.time(DetectorClock.currentTimeMillis()), totemEquipGameTick);
         }
     }
     
     // Called when a totem is unequipped
-    private static void handleTotemUnequipped(ClientPlayerEntity player) {
+    private static void handleTotemUnequipped(ClientPlayerEntity player, PlayerSnapshot snapshot, long eventTimeNano) {
         // Only handle if we were tracking a totem
         if (totemEquipTimeNano > 0) {
-            long unequipTimeNano = System.nanoTime();
+            long unequipTimeNano = eventTimeNano;
             long heldDurationNanos = unequipTimeNano - totemEquipTimeNano;
             long heldDurationMillis = heldDurationNanos / 1_000_000;
             long ticksHeld = gameTickCounter - totemEquipGameTick;
             
             // Always log regardless of DEBUG_MODE
-            TaggerMod.LOGGER.info("[GhostTotem] Totem unequipped. Was held for {} ms ({} game ticks).", 
+            DetectorLog.info("[GhostTotem] Totem unequipped. Was held for {} ms ({} game ticks).", 
                                heldDurationMillis, ticksHeld);
             
             // ---------------------------------------------
@@ -247,39 +328,40 @@ public class GhostTotemDetector {
             boolean wasActuallyHoldingTotem = wasHoldingTotemLastTick;
             
             if (wasActuallyHoldingTotem) {
-                int emptySlots = countEmptyInventorySlots(player);
-                boolean inventoryLikelyCleared = emptySlots >= 27; // 75%+ empty
+                int emptySlots = snapshot.getEmptySlots();
+                boolean inventoryLikelyCleared = emptySlots >= inventoryClearEmptySlots; // 75%+ empty
 
-                ItemStack mainNow = player.getInventory().main.get(player.getInventory().selectedSlot);
-                ItemStack offNow  = player.getOffHandStack();
-                boolean handNowEmpty = mainNow.isEmpty() || offNow.isEmpty();
+                boolean handNowEmpty = snapshot.isMainHandEmpty() || snapshot.isOffHandEmpty();
 
                 // Ignore if we actually popped a totem very recently (server sends status 35)
-                long now = System.currentTimeMillis();
-                boolean poppedRecently = (now - lastTotemPopTime) < 2000; // 2-s window
-                boolean recentChatDeath = (now - lastSelfDeathChatTime) < 5000; // 5-second window
+                long popAgoMillis = (unequipTimeNano - lastTotemPopNano) / 1_000_000;
+                boolean poppedRecently = lastTotemPopNano != 0 && popAgoMillis < popWindowMillis; // 2-s window
+                boolean recentChatDeath = DeathCorrelator.hasSignal(DeathCorrelator.CHAT, unequipTimeNano);
 
                 if (TaggerMod.DEBUG_MODE) {
-                    TaggerMod.LOGGER.info("[GhostTotem]   wasActuallyHoldingTotem = {}", wasActuallyHoldingTotem);
-                    TaggerMod.LOGGER.info("[GhostTotem]   inventoryLikelyCleared = {} ({} empty)", inventoryLikelyCleared, emptySlots);
-                    TaggerMod.LOGGER.info("[GhostTotem]   handNowEmpty         = {}", handNowEmpty);
-                    TaggerMod.LOGGER.info("[GhostTotem]   poppedRecently       = {} ({} ms ago)", poppedRecently, now - lastTotemPopTime);
-                    TaggerMod.LOGGER.info("[GhostTotem]   recentChatDeath      = {} ({} ms ago)", recentChatDeath, now - lastSelfDeathChatTime);
+                    DetectorLog.info("[GhostTotem]   wasActuallyHoldingTotem = {}", wasActuallyHoldingTotem);
+                    DetectorLog.info("[GhostTotem]   inventoryLikelyCleared = {} ({} empty)", inventoryLikelyCleared, emptySlots);
+                    DetectorLog.info("[GhostTotem]   handNowEmpty         = {}", handNowEmpty);
+                    DetectorLog.info("[GhostTotem]   poppedRecently       = {} ({} ms ago)", poppedRecently, popAgoMillis);
+                    DetectorLog.info("[GhostTotem]   recentChatDeath      = {}", recentChatDeath);
                 }
 
-                if (inventoryLikelyCleared && handNowEmpty && !poppedRecently && recentChatDeath) {
-                    TaggerMod.LOGGER.info("[GhostTotem] Player was holding totem when inventory cleared ({} empty slots) — treating as ghost.", emptySlots);
+                if (inventoryLikelyCleared && handNowEmpty && !poppedRecently) {
+                    DetectorLog.info("[GhostTotem] Player was holding totem when inventory cleared ({} empty slots) — death signal.", emptySlots);
 
-                    // Use the regular onPlayerDeath pathway to reuse broadcast logic before we zero the timer.
-                    onPlayerDeath(player, false);
+                    // A wipe alone is not a death (kit swaps, /clear): it only joins or opens the death
+                    // event, and the hold is kept for the strong signal (usually our death line) that reports it
+                    clearedTotemEquipNano = totemEquipTimeNano;
+                    clearedTotemEquipGameTick = totemEquipGameTick;
+                    DeathCorrelator.signal(DeathCorrelator.INVENTORY_CLEAR, unequipTimeNano);
                 } else {
                     if (TaggerMod.DEBUG_MODE) {
-                        TaggerMod.LOGGER.info("[GhostTotem] Inventory clear conditions not met - NOT treating as ghost");
+                        DetectorLog.info("[GhostTotem] Inventory clear conditions not met - NOT treating as ghost");
                     }
                 }
             } else {
                 if (TaggerMod.DEBUG_MODE) {
-                    TaggerMod.LOGGER.info("[GhostTotem] Player was NOT holding totem when unequipped - NOT checking inventory clear");
+                    DetectorLog.info("[GhostTotem] Player was NOT holding totem when unequipped - NOT checking inventory clear");
                 }
             }
             
@@ -287,88 +369,84 @@ public class GhostTotemDetector {
         }
     }
 
-    // Counts how many main-inventory slots are empty (0-35). Ignores armor/offhand.
-    private static int countEmptyInventorySlots(ClientPlayerEntity player) {
-        int empty = 0;
-        for (ItemStack stack : player.getInventory().main) {
-            if (stack.isEmpty()) {
-                empty++;
-            }
+    // This handles player death with ghost totem detection.
+    // deathTimeNano is the network arrival of the death signal so the hold time is not tick-quantised.
+    // player is null in headless (replay) mode. signal names what revealed the death (for JFR).
+    private static void onPlayerDeath(ClientPlayerEntity player, PlayerSnapshot snapshot, boolean spectatorTransition, long deathTimeNano, String signal) {
+        // An inventory wipe right next to this death already ended the hold; time it from there.
+        // A wipe further away is unrelated (kit swap, /clear) and must not time a later death.
+        long clearNano = DeathCorrelator.signalNanos(DeathCorrelator.INVENTORY_CLEAR);
+        if (totemEquipTimeNano == 0 && clearedTotemEquipNano > 0 && clearNano != 0
+                && Math.abs(deathTimeNano - clearNano) <= CLEAR_DEATH_GAP_NANOS) {
+            totemEquipTimeNano = clearedTotemEquipNano;
+            totemEquipGameTick = clearedTotemEquipGameTick;
+            deathTimeNano = Math.min(deathTimeNano, clearNano);
         }
-        return empty;
-    }
-
-    // This handles player death with ghost totem detection
-    private static void onPlayerDeath(ClientPlayerEntity player, boolean spectatorTransition) {
+        clearedTotemEquipNano = 0;
+        
         // Check if we were holding a totem when we died
         if (totemEquipTimeNano > 0) {
-            long deathTimeNano = System.nanoTime();
             long durationNanos = deathTimeNano - totemEquipTimeNano;
             long durationMillis = durationNanos / 1_000_000; // Convert nanoseconds to milliseconds
             long deathGameTick = gameTickCounter;
             long ticksHeld = deathGameTick - totemEquipGameTick;
 
-            // Determine if the totem was in main hand or off hand at time of death
-            ItemStack mainHandItem = player.getInventory().main.get(player.getInventory().selectedSlot);
-            ItemStack offHandItem = player.getOffHandStack();
-            
-            boolean inMainHand = mainHandItem.getItem() == Items.TOTEM_OF_UNDYING;
-            boolean inOffHand = offHandItem.getItem() == Items.TOTEM_OF_UNDYING;
-            
-            String handType = inMainHand ? "Mainhand" : (inOffHand ? "Offhand" : "Unknown");
+            // Determine if the totem was in main hand or off hand at time of death (the last equipped
+            // hand if the inventory was already wiped)
+            String handType = snapshot.isHoldingTotem() ? snapshot.getTotemHand() : lastTotemHand;
 
             // Save these values for diagnostics
-            lastGhostTotemTime = System.currentTimeMillis();
+            lastGhostTotemTime = DetectorClock.currentTimeMillis();
             ghostTotemHoldTime = durationMillis;
 
             // Detailed game tick info for the consistent 48-49ms issue
-            TaggerMod.LOGGER.info("[GhostTotem] ====== GHOST TOTEM DETECTED! ======");
-            TaggerMod.LOGGER.info("[GhostTotem] Hand: {}", handType);
-            TaggerMod.LOGGER.info("[GhostTotem] Totem equipped on game tick: {}", totemEquipGameTick);
-            TaggerMod.LOGGER.info("[GhostTotem] Death occurred on game tick: {}", deathGameTick);
-            TaggerMod.LOGGER.info("[GhostTotem] Ticks between equip and death: {}", ticksHeld);
-            TaggerMod.LOGGER.info("[GhostTotem] Expected duration for {} ticks: {} ms", 
-                               ticksHeld, (ticksHeld * 1000 * SECONDS_PER_TICK));
-            TaggerMod.LOGGER.info("[GhostTotem] Actual measured duration: {} ms", durationMillis);
-            TaggerMod.LOGGER.info("[GhostTotem] Difference from expected: {} ms", 
-                              durationMillis - (ticksHeld * 1000 * SECONDS_PER_TICK));
-            TaggerMod.LOGGER.info("[GhostTotem] ===============================");
+            DetectorLog.info("[GhostTotem] ====== GHOST TOTEM DETECTED! ======");
+            DetectorLog.info("[GhostTotem] Hand: {}", handType);
+            DetectorLog.info("[GhostTotem] Totem equipped on game tick: {}", totemEquipGameTick);
+            DetectorLog.info("[GhostTotem] Death occurred on game tick: {}", deathGameTick);
+            DetectorLog.info("[GhostTotem] Ticks between equip and death: {}", ticksHeld);
+            // ticksHeld counts client ticks, which run at 20 Hz whatever the server does; the measured
+            // hold is converted to server ticks at the measured TPS instead, so lag shows up there
+            double expectedMillis = ticksHeld * 1000 * SECONDS_PER_TICK;
+            DetectorLog.info("[GhostTotem] Server timing: {}", ServerTiming.describe());
+            DetectorLog.info("[GhostTotem] Expected duration for {} client ticks: {} ms", ticksHeld, Math.round(expectedMillis));
+            DetectorLog.info("[GhostTotem] Actual measured duration: {} ms (packet arrival to packet arrival, {} server ticks)",
+                              durationMillis, Math.round(ServerTiming.serverTicks(durationMillis) * 10) / 10.0);
+            DetectorLog.info("[GhostTotem] Difference from expected: {} ms", 
+                              Math.round(durationMillis - expectedMillis));
+            DetectorLog.info("[GhostTotem] ===============================");
+            notifyDetection(handType, durationMillis, ticksHeld, true, signal);
+            if (headless) {
+                totemEquipTimeNano = 0;
+                return;
+            }
+            FlightRecorder.dump(handType + " ghost, " + durationMillis + "ms");
+            GhostStats.recordGhost(durationNanos, ticksHeld, popToDeathNanos(deathTimeNano), DetectorClock.nanoTime() - deathTimeNano);
 
             // Always log this critical event with precise timing info
-            TaggerMod.LOGGER.info("[GhostTotem] Death with {} totem held! Equip time: {}, Death time: {}, Held for {} ms ({} game ticks)",
-                             handType.toLowerCase(), TIME_FORMAT.format(new Date(System.currentTimeMillis() - durationMillis)), 
-                             TIME_FORMAT.format(new Date()), durationMillis, ticksHeld);
+            DetectorLog.info("[GhostTotem] Death with {} totem held! Equip time: {}, Death time: {}, Held for {} ms ({} game ticks)",
+                             handType.toLowerCase(), DetectorLog.time(DetectorClock.currentTimeMillis() - durationMillis), 
+                             DetectorLog.time(DetectorClock.currentTimeMillis()), durationMillis, ticksHeld);
 
             // Check for players in render distance and prepare message accordingly
             MinecraftClient client = MinecraftClient.getInstance();
             if (client.player != null && client.world != null) {
-                String publicMessage;
-                if (spectatorTransition) {
-                    // For spectator transitions, use a specific message without timing
-                    publicMessage = String.format("<%s Ghost Detected>", handType);
-                } else {
-                    // Include timing info only when duration is <= 300ms; otherwise omit timing
-                    if (durationMillis <= 300) {
-                        publicMessage = String.format("<%s Ghost Detected> totem held for %dms (%d ticks)",
-                                                     handType, durationMillis, ticksHeld);
-                    } else {
-                        publicMessage = String.format("<%s Ghost Detected>", handType);
-                    }
-                }
+                // For spectator transitions there is no timing; otherwise include it only when the hold
+                // was within 300ms (wall clock, as measured)
+                boolean timed = !spectatorTransition && durationMillis <= 300;
+                String publicMessage = ReportTemplates.ghostReport(handType, timed, durationMillis, ticksHeld);
                 
                 // Get players in render distance (using a reasonable render distance of ~16 blocks)
-                World world = client.world;
                 Vec3d playerPos = player.getPos();
-                double renderDistance = 16.0; // Standard chunk render distance
-                Box renderArea = new Box(playerPos.subtract(renderDistance, renderDistance, renderDistance),
-                                       playerPos.add(renderDistance, renderDistance, renderDistance));
                 
                 // Get nearby players excluding ourselves
-                List<PlayerEntity> nearbyPlayers = world.getEntitiesByClass(PlayerEntity.class, renderArea, entity -> 
-                    entity != player // Exclude ourselves
-                );
+                List<PlayerEntity> nearbyPlayers = NEARBY_PLAYERS;
+                PlayerIndex.collectNearby(playerPos, RENDER_DISTANCE, player, nearbyPlayers);
                 
-                TaggerMod.LOGGER.info("[GhostTotem] Found {} players in render distance", nearbyPlayers.size());
+                DetectorLog.info("[GhostTotem] Found {} players in render distance", nearbyPlayers.size());
+                
+                DetectionJournal.append(DetectionJournal.TYPE_GHOST, DetectionJournal.hand(handType), durationNanos, ticksHeld,
+                    nearbyPlayers.size() == 1 ? DetectionJournal.nameHash(nearbyPlayers.get(0).getGameProfile().getName()) : 0);
                 
                 String commandToSend;
                 if (nearbyPlayers.size() == 1) {
@@ -376,41 +454,51 @@ public class GhostTotemDetector {
                     PlayerEntity targetPlayer = nearbyPlayers.get(0);
                     String targetPlayerName = targetPlayer.getName().getString();
                     commandToSend = "/w " + targetPlayerName + " " + publicMessage;
-                    TaggerMod.LOGGER.info("[GhostTotem] Prepared private message to {}", targetPlayerName);
+                    DetectorLog.info("[GhostTotem] Prepared private message to {}", targetPlayerName);
                 } else {
                     // 0 or more than 1 player in render distance - prepare global chat message
                     commandToSend = publicMessage;
-                    TaggerMod.LOGGER.info("[GhostTotem] Prepared global chat message");
+                    DetectorLog.info("[GhostTotem] Prepared global chat message");
                 }
                 
                                  // Send message based on mode
                  if (macroMode && client.getNetworkHandler() != null) {
-                     // Macro mode enabled - send command directly
+                     // Macro mode enabled - queue the report (rate-limited, deduplicated per death event, merged)
+                     String reportKey = "ghost-" + DeathCorrelator.eventId();
                      if (nearbyPlayers.size() == 1) {
-                         client.getNetworkHandler().sendChatCommand("w " + nearbyPlayers.get(0).getName().getString() + " " + publicMessage);
+                         OutboundChatQueue.whisper(nearbyPlayers.get(0).getName().getString(), publicMessage, reportKey);
                      } else {
-                         client.getNetworkHandler().sendChatMessage(publicMessage);
+                         OutboundChatQueue.sendMessage(publicMessage, reportKey);
                      }
-                     TaggerMod.LOGGER.info("[GhostTotem] Sent command via macro mode");
+                     DetectorLog.info("[GhostTotem] Queued report via macro mode");
                  } else if (clipboardMode) {
                      // Clipboard mode enabled - send big message and copy to clipboard
                      sendGhostDetectionMessage(commandToSend, handType, durationMillis, ticksHeld);
                  } else {
                      // Both modes disabled - just log the detection
-                     TaggerMod.LOGGER.info("[GhostTotem] Ghost detected but both modes are disabled");
+                     DetectorLog.info("[GhostTotem] Ghost detected but both modes are disabled");
                  }
             }
 
-            // Reset the timer immediately to prevent multiple messages for the same death event
+            // The held totem is accounted for by this death (DeathCorrelator keeps later signals from re-reporting)
             totemEquipTimeNano = 0;
         } else {
             // Log that a death was detected, but no totem was active
-            TaggerMod.LOGGER.info("[GhostTotem] Death detected, but no totem was being held.");
+            DetectorLog.info("[GhostTotem] Death detected, but no totem was being held.");
             // New logic: Some servers keep the player in SURVIVAL, clear inventory and broadcast the
             // death message before the client has a chance to equip a totem. In these cases the
             // player remains alive (health > 0, not dead, still in SURVIVAL) and we *still* want to
             // warn nearby players that a ghost has occurred even though we have no timing data.
 
+            if (headless) {
+                // Replay: judge from the state captured by the last tickPlayer call
+                if (snapshot.getHealth() > 0 && !snapshot.isDead() && snapshot.getGameMode() != GameMode.SPECTATOR) {
+                    lastGhostTotemTime = DetectorClock.currentTimeMillis();
+                    notifyDetection("Unknown", 0, 0, false, signal);
+                }
+                return;
+            }
+
             MinecraftClient client = MinecraftClient.getInstance();
             if (client != null && client.player != null) {
                 // Consider it a ghost death if we are still alive *and* not in spectator mode.
@@ -421,50 +509,52 @@ public class GhostTotemDetector {
                 }
 
                 if (stillAlive && !inSpectator) {
-                    // Mark time so we do not double-process this death.
-                    lastGhostTotemTime = System.currentTimeMillis();
+                    lastGhostTotemTime = DetectorClock.currentTimeMillis();
+                    notifyDetection("Unknown", 0, 0, false, signal);
+                    FlightRecorder.dump("no-totem ghost");
+                    GhostStats.recordGhost(-1, -1, popToDeathNanos(deathTimeNano), DetectorClock.nanoTime() - deathTimeNano);
 
-                    String publicMessage = "<Ghost Detected>";
+                    String publicMessage = ReportTemplates.ghostReport("Unknown", false, 0, 0);
 
                     // Prepare message for exactly one nearby player if possible, otherwise to global chat
                     if (client.world != null) {
-                        World world = client.world;
                         Vec3d playerPos = client.player.getPos();
-                        double renderDistance = 16.0;
-                        Box renderArea = new Box(playerPos.subtract(renderDistance, renderDistance, renderDistance),
-                                                 playerPos.add(renderDistance, renderDistance, renderDistance));
 
-                        List<PlayerEntity> nearbyPlayers = world.getEntitiesByClass(PlayerEntity.class, renderArea,
-                                entity -> entity != client.player);
+                        List<PlayerEntity> nearbyPlayers = NEARBY_PLAYERS;
+                        PlayerIndex.collectNearby(playerPos, RENDER_DISTANCE, client.player, nearbyPlayers);
 
-                        TaggerMod.LOGGER.info("[GhostTotem] (No-totem) Found {} players in render distance", nearbyPlayers.size());
+                        DetectorLog.info("[GhostTotem] (No-totem) Found {} players in render distance", nearbyPlayers.size());
+
+                        DetectionJournal.append(DetectionJournal.TYPE_GHOST, DetectionJournal.HAND_UNKNOWN, 0, 0,
+                            nearbyPlayers.size() == 1 ? DetectionJournal.nameHash(nearbyPlayers.get(0).getGameProfile().getName()) : 0);
 
                         String commandToSend;
                         if (nearbyPlayers.size() == 1) {
                             PlayerEntity targetPlayer = nearbyPlayers.get(0);
                             String targetPlayerName = targetPlayer.getName().getString();
                             commandToSend = "/w " + targetPlayerName + " " + publicMessage;
-                            TaggerMod.LOGGER.info("[GhostTotem] (No-totem) Prepared private message to {}", targetPlayerName);
+                            DetectorLog.info("[GhostTotem] (No-totem) Prepared private message to {}", targetPlayerName);
                         } else {
                             commandToSend = publicMessage;
-                            TaggerMod.LOGGER.info("[GhostTotem] (No-totem) Prepared global chat message");
+                            DetectorLog.info("[GhostTotem] (No-totem) Prepared global chat message");
                         }
                         
                                                  // Send message based on mode
                          if (macroMode && client.getNetworkHandler() != null) {
-                             // Macro mode enabled - send command directly
+                             // Macro mode enabled - queue the report (rate-limited, deduplicated per death event, merged)
+                             String reportKey = "ghost-" + DeathCorrelator.eventId();
                              if (nearbyPlayers.size() == 1) {
-                                 client.getNetworkHandler().sendChatCommand("w " + nearbyPlayers.get(0).getName().getString() + " " + publicMessage);
+                                 OutboundChatQueue.whisper(nearbyPlayers.get(0).getName().getString(), publicMessage, reportKey);
                              } else {
-                                 client.getNetworkHandler().sendChatMessage(publicMessage);
+                                 OutboundChatQueue.sendMessage(publicMessage, reportKey);
                              }
-                             TaggerMod.LOGGER.info("[GhostTotem] (No-totem) Sent command via macro mode");
+                             DetectorLog.info("[GhostTotem] (No-totem) Queued report via macro mode");
                          } else if (clipboardMode) {
                              // Clipboard mode enabled - send big message and copy to clipboard
                              sendGhostDetectionMessage(commandToSend, "Unknown", 0, 0);
                          } else {
                              // Both modes disabled - just log the detection
-                             TaggerMod.LOGGER.info("[GhostTotem] (No-totem) Ghost detected but both modes are disabled");
+                             DetectorLog.info("[GhostTotem] (No-totem) Ghost detected but both modes are disabled");
                          }
                     }
                 }
@@ -472,14 +562,28 @@ public class GhostTotemDetector {
         }
     }
 
-    // This method is left for compatibility with the mixin, but we'll move the actual logic to onPlayerDeath
-    // Deprecated in favor of the more reliable onPlayerDeath method
-    public static void onPlayerHealthUpdate(ClientPlayerEntity player, float health) {
-        // If health dropped to zero, call our unified death handler
-        // Assuming spectator transition is false when triggered only by health update
-        if (health <= 0 && wasAlive) { // Add wasAlive check to prevent multiple calls if health stays at 0
-            TaggerMod.LOGGER.info("[GhostTotem] Death detected via health update method. Health: {}", health);
-            onPlayerDeath(player, false); // Pass false for spectatorTransition
+    // Gap between the last local totem pop and this death, or -1 if there was no recent pop
+    private static long popToDeathNanos(long deathTimeNano) {
+        if (lastTotemPopNano == 0) {
+            return -1;
+        }
+        long gap = deathTimeNano - lastTotemPopNano;
+        return gap >= 0 && gap < 60_000_000_000L ? gap : -1;
+    }
+
+    /**
+     * Called by PacketArrivalMixin after the client applied a health packet: the earliest sign of
+     * a real death, ahead of the tick's alive check.
+     * @param arrivalNano when the packet reached the network thread
+     */
+    public static void onPlayerHealthUpdate(ClientPlayerEntity player, float health, long arrivalNano) {
+        PlayerSnapshot snapshot = PlayerSnapshot.current();
+        if (health > 0 || !wasAlive || !snapshot.isValid()) {
+            return;
+        }
+        DetectorLog.info("[GhostTotem] Death detected via health packet. Health: {}", health);
+        if (DeathCorrelator.signal(DeathCorrelator.HEALTH, arrivalNano)) {
+            onPlayerDeath(player, snapshot, false, DeathCorrelator.eventStartNanos(), "health");
         }
     }
     
@@ -498,52 +602,108 @@ public class GhostTotemDetector {
      * logic that would fire when we detect the death via health drop or spectator transition.
      */
     public static void onChatMessage(String message) {
-        // Quick sanity check to avoid unnecessary regex work
-        if (message == null || !message.toLowerCase().contains("was killed")) {
+        if (message == null) {
             return;
         }
-
-        Matcher matcher = CHAT_DEATH_PATTERN.matcher(message);
-        if (!matcher.find()) {
-            return;
+        List<ChatEvent> events = ChatClassifier.CLIENT.classify(message);
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i).type == ChatEvent.Type.DEATH) {
+                onDeathMessage(events.get(i).player, DetectorClock.nanoTime());
+                return;
+            }
         }
+    }
 
-        String victimName = matcher.group(1);
-
-        MinecraftClient client = MinecraftClient.getInstance();
-        if (client.player == null) {
+    /**
+     * Called with the victim of a classified "<player> was killed" line (see ChatClassifier).
+     * @param messageTimeNano when the chat line was received; delivery may be up to a tick later
+     */
+    public static void onDeathMessage(String victimName, long messageTimeNano) {
+        ClientPlayerEntity player = null;
+        String selfName;
+        if (headless) {
+            selfName = headlessSelfName;
+        } else {
+            MinecraftClient client = MinecraftClient.getInstance();
+            if (client == null || client.player == null) {
+                return;
+            }
+            player = client.player;
+            selfName = player.getName().getString();
+        }
+        // Judge against this tick's snapshot (chat is delivered at the start of the tick)
+        PlayerSnapshot snapshot = PlayerSnapshot.current();
+        if (!snapshot.isValid() || selfName == null) {
             return;
         }
 
-        String selfName = client.player.getName().getString();
         if (!victimName.equalsIgnoreCase(selfName)) {
             // Not our own death – ignore.
             return;
         }
 
-        // Avoid duplicate handling if we already processed a death very recently
-        if (System.currentTimeMillis() - lastGhostTotemTime < 1000) {
-            return;
+        if (TaggerMod.DEBUG_MODE) {
+            DetectorLog.info("[GhostTotem] Death detected via chat message for '{}'", victimName);
         }
 
-        if (TaggerMod.DEBUG_MODE) {
-            TaggerMod.LOGGER.info("[GhostTotem] Death detected via chat message: '{}'", message);
+        // Reported only if no other signal of this death got there first
+        if (DeathCorrelator.signal(DeathCorrelator.CHAT, messageTimeNano)) {
+            onPlayerDeath(player, snapshot, false, DeathCorrelator.eventStartNanos(), "chat");
         }
+    }
 
-        // Trigger the same handler we use for health/spectator detections.
-        onPlayerDeath(client.player, false);
+    // Tell the (replay) listener and JFR about a detection
+    private static void notifyDetection(String handType, long durationMillis, long ticksHeld, boolean timed, String signal) {
+        JfrEvents.ghostDetected(handType, durationMillis, ticksHeld, signal, timed);
+        if (detectionListener != null) {
+            detectionListener.onGhost(handType, durationMillis, ticksHeld, timed);
+        }
+    }
 
-        long now = System.currentTimeMillis();
-        lastSelfDeathChatTime = now;
+    /**
+     * Receives every ghost detection; used by the replay harness.
+     */
+    interface DetectionListener {
+        void onGhost(String handType, long durationMillis, long ticksHeld, boolean timed);
+    }
 
-        if (TaggerMod.DEBUG_MODE) {
-            TaggerMod.LOGGER.info("[GhostTotem] Self death chat detected at {}", TIME_FORMAT.format(new Date(now)));
-        }
+    /**
+     * Run without a MinecraftClient (replay harness): detections are only reported to the listener.
+     */
+    static void setHeadless(String selfName, DetectionListener listener) {
+        headless = true;
+        headlessSelfName = selfName;
+        detectionListener = listener;
+    }
 
-        // Only call onPlayerDeath immediately if a totem is currently tracked (timed ghost case).
-        if (totemEquipTimeNano > 0) {
-            onPlayerDeath(client.player, false);
-        }
+    /**
+     * Advance the tick counter as tick() does, for callers driving tickPlayer directly.
+     */
+    static void advanceGameTick() {
+        gameTickCounter++;
+    }
+
+    /**
+     * Reset all per-fight state (replay harness, between recorded fights).
+     */
+    static void resetState() {
+        totemEquipTimeNano = 0;
+        lastCheckedSlot = -1;
+        lastHealth = -1;
+        wasAlive = true;
+        lastGameMode = null;
+        wasHoldingTotemLastTick = false;
+        gameTickCounter = 0;
+        totemEquipGameTick = 0;
+        lastTickNano = 0;
+        lastGhostTotemTime = 0;
+        ghostTotemHoldTime = 0;
+        lastTotemPopNano = 0;
+        clearedTotemEquipNano = 0;
+        clearedTotemEquipGameTick = 0;
+        lastTotemHand = "Unknown";
+        PlayerSnapshot.clear();
+        DeathCorrelator.reset();
     }
 
     // Send big unmissable message and copy command to clipboard
@@ -555,36 +715,48 @@ public class GhostTotemDetector {
         try {
             if (client.keyboard != null) {
                 client.keyboard.setClipboard(command);
-                TaggerMod.LOGGER.info("[GhostTotem] Command copied to clipboard: {}", command);
+                DetectorLog.info("[GhostTotem] Command copied to clipboard: {}", command);
             } else {
-                TaggerMod.LOGGER.error("[GhostTotem] Failed to copy to clipboard: Minecraft keyboard is null");
+                DetectorLog.error("[GhostTotem] Failed to copy to clipboard: Minecraft keyboard is null");
             }
         } catch (Exception e) {
-            TaggerMod.LOGGER.error("[GhostTotem] Failed to copy to clipboard: {}", e.getMessage());
+            DetectorLog.error("[GhostTotem] Failed to copy to clipboard: {}", e.getMessage());
         }
         
-        // Send big unmissable multi-line message
-        client.player.sendMessage(Text.literal("§c§l" + "=".repeat(50)), false);
-        client.player.sendMessage(Text.literal("§c§l🚨 GHOST TOTEM DETECTED! 🚨"), false);
-        client.player.sendMessage(Text.literal("§c§l" + "=".repeat(50)), false);
-        client.player.sendMessage(Text.literal("§eHand: §f" + handType), false);
-        client.player.sendMessage(Text.literal("§eDuration: §f" + durationMillis + "ms (" + ticksHeld + " ticks)"), false);
-        client.player.sendMessage(Text.literal("§c§l" + "=".repeat(50)), false);
-        client.player.sendMessage(Text.literal("§aCommand copied to clipboard!"), false);
-        client.player.sendMessage(Text.literal("§aPaste it in chat to report the ghost:"), false);
-        client.player.sendMessage(Text.literal("§7" + command), false);
-        client.player.sendMessage(Text.literal("§c§l" + "=".repeat(50)), false);
+        // Send big unmissable multi-line message as one chat component
+        client.player.sendMessage(ReportTemplates.ghostAlert(command, handType, durationMillis, ticksHeld), false);
         
-        // Schedule the macro reminder
-        lastGhostDetectionTime = System.currentTimeMillis();
-        macroReminderScheduled = true;
+        // Schedule the macro reminder (3 seconds), replacing one still pending from an earlier report
+        if (macroReminder != null) {
+            macroReminder.cancel();
+        }
+        macroReminder = TickScheduler.schedule(3000, () -> {
+            macroReminder = null;
+            MinecraftClient reminderClient = MinecraftClient.getInstance();
+            if (reminderClient.player != null) {
+                reminderClient.player.sendMessage(Text.literal("§e[Ghost Detector] Do /gd macro for chat macro mode or /gd clipboard for clipboard mode (check your server's rules!)"), false);
+            }
+        });
     }
     
-    // Called by TotemPopMixin when the server tells the client we used a totem (status 35)
-    public static void onLocalPlayerTotemPop() {
-        lastTotemPopTime = System.currentTimeMillis();
+    // EntityStatusDispatch listener for status 35 (totem pop) on any entity
+    static void onTotemPopStatus(int entityId, EntityStatusS2CPacket packet) {
+        ClientPlayerEntity player = MinecraftClient.getInstance().player;
+        if (player != null && entityId == player.getId()) {
+            onLocalPlayerTotemPop(PacketTimestamps.arrivalOf(packet));
+        }
+    }
+
+    // Called when the server tells the client we used a totem (status 35).
+    // arrivalNano is when the packet reached the network thread.
+    public static void onLocalPlayerTotemPop(long arrivalNano) {
+        lastTotemPopNano = arrivalNano;
+        JfrEvents.totemPop(lastTotemHand, DetectorClock.nanoTime() - arrivalNano);
+        if (!headless) {
+            DetectionJournal.append(DetectionJournal.TYPE_POP, DetectionJournal.hand(lastTotemHand), 0, 0, 0);
+        }
         if (TaggerMod.DEBUG_MODE) {
-            TaggerMod.LOGGER.info("[GhostTotem] Local player totem pop detected via status packet");
+            DetectorLog.info("[GhostTotem] Local player totem pop detected via status packet");
         }
     }
 } 
\ No newline at end of file
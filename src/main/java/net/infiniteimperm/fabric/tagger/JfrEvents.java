@@ -0,0 +1,155 @@
+package net.infiniteimperm.fabric.tagger;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for the detector, so a -XX:StartFlightRecording session shows
+ * where the mod runs relative to GC pauses and render spikes.
+ * All events are disabled by default; enable them in a .jfc settings file or on the command line,
+ * e.g. -XX:StartFlightRecording:ghostdetector.DetectorTick#enabled=true,...
+ * When disabled, shouldCommit() is false and the JIT removes the event allocation entirely.
+ * The per-tick DetectorTick does not rely on that: its caller checks detectorTickEnabled() first,
+ * the way PerfTimers.start() returns early when the timers are off.
+ */
+public final class JfrEvents {
+
+    private static final String CATEGORY = "Ghost Detector";
+
+    private static EventType detectorTickType; // Looked up once, on first use
+
+    private JfrEvents() {
+    }
+
+    @Name("ghostdetector.GhostDetected")
+    @Label("Ghost Totem Detected")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class GhostDetected extends Event {
+        @Label("Hand")
+        String hand;
+        @Label("Hold Duration")
+        @Timespan(Timespan.MILLISECONDS)
+        long holdDuration;
+        @Label("Ticks Held")
+        long ticksHeld;
+        @Label("Signal")
+        @Description("First strong signal of the death (see DeathCorrelator): health, alive, gamemode or chat")
+        String signal;
+        @Label("Timed")
+        @Description("False when no totem equip time was tracked")
+        boolean timed;
+    }
+
+    @Name("ghostdetector.TotemPop")
+    @Label("Totem Pop")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class TotemPop extends Event {
+        @Label("Hand")
+        String hand;
+        @Label("Handling Delay")
+        @Description("From the status packet reaching the network thread to the client thread handling it")
+        @Timespan(Timespan.NANOSECONDS)
+        long handlingDelay;
+    }
+
+    @Name("ghostdetector.KitLoad")
+    @Label("Kit Load")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class KitLoad extends Event {
+        @Label("Player")
+        String player;
+        @Label("In Range")
+        boolean inRange;
+    }
+
+    @Name("ghostdetector.KitEffect")
+    @Label("Kit Effect Spawn")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class KitEffect extends Event {
+        @Label("Player")
+        String player;
+    }
+
+    @Name("ghostdetector.QueueGate")
+    @Label("Queue Command Gate")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class QueueGate extends Event {
+        @Label("Command")
+        String command;
+        @Label("Blocked")
+        boolean blocked;
+        @Label("Average Armor Durability")
+        @Description("Average durability of worn armor, 0-1 (-1 when not checked)")
+        float averageDurability;
+    }
+
+    @Name("ghostdetector.DetectorTick")
+    @Label("Detector Tick")
+    @Description("Per-tick work of all detectors (END_CLIENT_TICK handler)")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class DetectorTick extends Event {
+        @Label("Event-Driven Mode")
+        boolean eventDriven;
+    }
+
+    /**
+     * Whether a recording currently has DetectorTick enabled (the settings can change at any time).
+     */
+    public static boolean detectorTickEnabled() {
+        EventType type = detectorTickType;
+        if (type == null) {
+            type = EventType.getEventType(DetectorTick.class);
+            detectorTickType = type;
+        }
+        return type.isEnabled();
+    }
+
+    static void ghostDetected(String hand, long holdMillis, long ticksHeld, String signal, boolean timed) {
+        GhostDetected event = new GhostDetected();
+        if (event.shouldCommit()) {
+            event.hand = hand;
+            event.holdDuration = holdMillis;
+            event.ticksHeld = ticksHeld;
+            event.signal = signal;
+            event.timed = timed;
+            event.commit();
+        }
+    }
+
+    static void totemPop(String hand, long handlingDelayNanos) {
+        TotemPop event = new TotemPop();
+        if (event.shouldCommit()) {
+            event.hand = hand;
+            event.handlingDelay = handlingDelayNanos;
+            event.commit();
+        }
+    }
+
+    static void kitLoad(String player, boolean inRange) {
+        KitLoad event = new KitLoad();
+        if (event.shouldCommit()) {
+            event.player = player;
+            event.inRange = inRange;
+            event.commit();
+        }
+    }
+}
@@ -3,84 +3,65 @@ package net.infiniteimperm.fabric.tagger;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.World;
 
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class KitDetector {
     
-    // Multiple patterns to match different possible kit loading message formats
-    private static final Pattern[] KIT_LOAD_PATTERNS = {
-        Pattern.compile("ðŸ—¡ ([a-zA-Z0-9_]+) loaded a kit"),          // Original pattern
-        Pattern.compile("🗡 ([a-zA-Z0-9_]+) loaded a kit"),           // Unicode sword
-        Pattern.compile("⚔ ([a-zA-Z0-9_]+) loaded a kit"),            // Crossed swords
-        Pattern.compile(".*([a-zA-Z0-9_]+) loaded a kit.*"),          // Any sword character
-        Pattern.compile("([a-zA-Z0-9_]+) loaded a kit"),              // No sword at all
-    };
     private static final double RENDER_DISTANCE = 16.0; // Same as ghost detector
     
     /**
-     * Process a chat message to detect kit loading
+     * Process a chat message to detect kit loading.
+     * TaggerMod classifies each message once and calls {@link #onKitLoad} directly; this entry
+     * point is kept for callers that only have the flattened string.
      */
     public static void onChatMessage(String message) {
-        for (Pattern pattern : KIT_LOAD_PATTERNS) {
-            Matcher kitMatcher = pattern.matcher(message);
-            if (kitMatcher.find()) {
-                String playerName = kitMatcher.group(1);
-                
-                TaggerMod.LOGGER.info("[KitDetector] Detected kit load by player: {}", playerName);
-                
-                // Check if the player is in render distance
-                checkPlayerInRangeAndShowEffect(playerName);
-                return; // Found a match, no need to try other patterns
+        List<ChatEvent> events = ChatClassifier.CLIENT.classify(message);
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i).type == ChatEvent.Type.KIT_LOAD) {
+                onKitLoad(events.get(i).player);
+                return; // Found a match, no need to look further
             }
         }
     }
     
+    /**
+     * Called when a "<player> loaded a kit" line was classified
+     */
+    public static void onKitLoad(String playerName) {
+        DetectorLog.info("[KitDetector] Detected kit load by player: {}", playerName);
+        DetectionJournal.append(DetectionJournal.TYPE_KIT_LOAD, DetectionJournal.HAND_UNKNOWN, 0, 0, DetectionJournal.nameHash(playerName));
+        
+        // Check if the player is in render distance
+        checkPlayerInRangeAndShowEffect(playerName);
+    }
+    
     /**
      * Check if the player who loaded a kit is in render distance and show effect
      */
     private static void checkPlayerInRangeAndShowEffect(String playerName) {
         MinecraftClient client = MinecraftClient.getInstance();
         
-        if (client.player == null || client.world == null) {
+        if (client == null || client.player == null || client.world == null) {
             return;
         }
         
         ClientPlayerEntity localPlayer = client.player;
-        World world = client.world;
         Vec3d localPlayerPos = localPlayer.getPos();
         
-        // Create bounding box for render distance check
-        Box renderArea = new Box(localPlayerPos.subtract(RENDER_DISTANCE, RENDER_DISTANCE, RENDER_DISTANCE),
-                               localPlayerPos.add(RENDER_DISTANCE, RENDER_DISTANCE, RENDER_DISTANCE));
+        // Look the player up by name in the index, excluding ourselves
+        PlayerEntity targetPlayer = PlayerIndex.findNearby(playerName, localPlayerPos, RENDER_DISTANCE, localPlayer);
         
-        // Get nearby players excluding ourselves
-        List<PlayerEntity> nearbyPlayers = world.getEntitiesByClass(PlayerEntity.class, renderArea, entity -> 
-            entity != localPlayer && entity.getName().getString().equals(playerName)
-        );
-        
-        if (!nearbyPlayers.isEmpty()) {
+        JfrEvents.kitLoad(playerName, targetPlayer != null);
+        if (targetPlayer != null) {
             // Player is in render distance - show the effect!
-            PlayerEntity targetPlayer = nearbyPlayers.get(0);
-            TaggerMod.LOGGER.info("[KitDetector] Player {} is in render distance! Starting visual effect.", playerName);
+            DetectorLog.info("[KitDetector] Player {} is in render distance! Starting visual effect.", playerName);
             
             // Start the fancy visual effect using the renderer
             KitEffectRenderer.addEffect(targetPlayer);
         } else {
-            TaggerMod.LOGGER.info("[KitDetector] Player {} not in render distance, ignoring.", playerName);
+            DetectorLog.info("[KitDetector] Player {} not in render distance, ignoring.", playerName);
         }
     }
-    
-    /**
-     * Called every tick to update visual effects
-     */
-    public static void tick() {
-        // Update the visual effects renderer
-        KitEffectRenderer.tick();
-    }
 } 
\ No newline at end of file
@@ -1,5 +1,7 @@
 package net.infiniteimperm.fabric.tagger;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.LightningEntity;
@@ -7,31 +9,60 @@ import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.util.math.MathHelper;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Random;
+import java.lang.ref.WeakReference;
 
+/**
+ * Lightning effect for players that load a kit, scheduled so a lobby-wide rekit cannot flood the
+ * world with lightning entities:
+ * - requests are queued per entity id and coalesced (a player already queued is not queued twice)
+ * - a player struck recently is on cooldown and further requests are dropped
+ * - at most STRIKES_PER_TICK players are struck per tick; requests older than MAX_QUEUE_MILLIS
+ *   or beyond MAX_QUEUED are dropped instead of being played late
+ * Players are held through weak references. The queue is drained and cooldowns expire through
+ * TickScheduler timers, so nothing runs on ticks where no effect is queued or expiring, and
+ * strikes are deferred by the scheduler when its per-tick budget is spent.
+ * All methods run on the client thread.
+ */
 public class KitEffectRenderer {
-    
-    private static final ConcurrentHashMap<String, EffectData> activeEffects = new ConcurrentHashMap<>();
-    private static final Random random = new Random();
-    
+
+    private static final int BOLTS_PER_STRIKE = 4;
+    private static final int STRIKES_PER_TICK = 2; // Players struck per tick (8 lightning entities)
+    private static final int MAX_QUEUED = 32; // Oldest request is dropped beyond this
+    private static final long MAX_QUEUE_MILLIS = 1000; // Not worth playing an effect later than this
+    private static final long COOLDOWN_MILLIS = 3000; // Per-player gap between strikes
+
+    // Waiting strikes by entity id, in request order
+    private static final Int2ObjectLinkedOpenHashMap<PendingStrike> pending = new Int2ObjectLinkedOpenHashMap<>();
+    // Players struck within the cooldown, by entity id, with the timer that ends the cooldown
+    private static final Int2ObjectOpenHashMap<TickScheduler.Timer> cooldowns = new Int2ObjectOpenHashMap<>();
+    private static TickScheduler.Timer drainTimer = null; // Scheduled while strikes are queued
+
+    private static long droppedRequests = 0;
+
     /**
-     * Strike a player with lightning for loading a kit
+     * Queue a lightning strike on a player for loading a kit
      */
     public static void addEffect(PlayerEntity player) {
-        String playerName = player.getName().getString();
-        TaggerMod.LOGGER.info("[KitEffectRenderer] Striking {} with lightning for loading a kit!", playerName);
-        
-        // Strike the player with 4 lightning bolts at the same time
-        strikeMultipleLightning(player);
-        
-        // Add effect data for tracking
-        EffectData effect = new EffectData(player, System.currentTimeMillis());
-        activeEffects.put(playerName, effect);
+        int id = player.getId();
+        if (cooldowns.containsKey(id) || pending.containsKey(id)) {
+            // Coalesce: already struck recently or already waiting for a slot
+            droppedRequests++;
+            if (TaggerMod.DEBUG_MODE) {
+                DetectorLog.info("[KitEffectRenderer] Coalesced kit effect for {} (cooldown or queued)", player.getName().getString());
+            }
+            return;
+        }
+        if (pending.size() >= MAX_QUEUED) {
+            pending.removeFirst();
+            droppedRequests++;
+        }
+        pending.put(id, new PendingStrike(player, DetectorClock.currentTimeMillis()));
+        if (drainTimer == null) {
+            drainTimer = TickScheduler.scheduleDeferrable(TickScheduler.TICK_MILLIS, KitEffectRenderer::drain);
+        }
     }
-    
+
     /**
      * Strike a player with 4 lightning bolts at the same time
      */
@@ -50,66 +81,90 @@ public class KitEffectRenderer {
             SoundEvents.ENTITY_LIGHTNING_BOLT_IMPACT, SoundCategory.WEATHER, 0.8f, 1.2f);
         
         // Strike with exactly 4 lightning bolts at the same time, all on the player
-        for (int i = 0; i < 4; i++) {
-            // Create lightning directly on the player
-            Vec3d lightningPos = new Vec3d(
-                playerPos.x,
-                playerPos.y,
-                playerPos.z
-            );
-            
+        for (int i = 0; i < BOLTS_PER_STRIKE; i++) {
             // Create a lightning bolt entity
             LightningEntity lightning = new LightningEntity(EntityType.LIGHTNING_BOLT, client.world);
-            lightning.refreshPositionAfterTeleport(lightningPos.x, lightningPos.y, lightningPos.z);
+            lightning.refreshPositionAfterTeleport(playerPos.x, playerPos.y, playerPos.z);
             
             // Add the lightning to the world
             client.world.addEntity(lightning);
-            
-            TaggerMod.LOGGER.info("[KitEffectRenderer] Lightning strike {} spawned on player at {}, {}, {}", 
-                i + 1, lightningPos.x, lightningPos.y, lightningPos.z);
         }
+        DetectorLog.info("[KitEffectRenderer] {} lightning strikes spawned on player at {}, {}, {}", 
+            BOLTS_PER_STRIKE, playerPos.x, playerPos.y, playerPos.z);
     }
     
     /**
-     * Update effects (minimal - just cleanup)
+     * Spend this tick's strike budget on the oldest queued requests; reschedules itself while any remain
      */
-    public static void tick() {
+    private static void drain() {
+        drainTimer = null;
         MinecraftClient client = MinecraftClient.getInstance();
         if (client.player == null || client.world == null) {
+            pending.clear();
             return;
         }
         
-        long currentTime = System.currentTimeMillis();
-        
-        // Clean up expired effects (after 1 second)
-        activeEffects.entrySet().removeIf(entry -> {
-            EffectData effect = entry.getValue();
-            PlayerEntity player = effect.player;
-            
-            // Effect lasts 1 second
-            if (currentTime - effect.startTime > 1000) {
-                return true; // Remove expired effect
+        long currentTime = DetectorClock.currentTimeMillis();
+        int budget = STRIKES_PER_TICK;
+        while (budget > 0 && !pending.isEmpty()) {
+            int id = pending.firstIntKey();
+            PendingStrike strike = pending.removeFirst();
+            PlayerEntity player = strike.player.get();
+
+            // Skip requests that went stale or whose player unloaded/died while waiting
+            if (currentTime - strike.requestTime > MAX_QUEUE_MILLIS || player == null || !player.isAlive() || player.isRemoved()) {
+                droppedRequests++;
+                continue;
             }
-            
-            // Check if player is still valid and alive
-            if (player == null || !player.isAlive()) {
-                return true; // Remove invalid effect
+
+            String playerName = player.getName().getString();
+            DetectorLog.info("[KitEffectRenderer] Striking {} with lightning for loading a kit!", playerName);
+
+            long perfStart = PerfTimers.start();
+            JfrEvents.KitEffect jfrEvent = new JfrEvents.KitEffect();
+            jfrEvent.begin();
+            strikeMultipleLightning(player);
+            PerfTimers.stop(PerfTimers.LIGHTNING, perfStart);
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.player = playerName;
+                jfrEvent.commit();
             }
-            
-            return false; // Keep the effect
-        });
+
+            cooldowns.put(id, TickScheduler.schedule(COOLDOWN_MILLIS, () -> cooldowns.remove(id)));
+            budget--;
+        }
+
+        if (!pending.isEmpty()) {
+            drainTimer = TickScheduler.scheduleDeferrable(TickScheduler.TICK_MILLIS, KitEffectRenderer::drain);
+        }
     }
-    
+
     /**
-     * Data class to hold effect information
+     * Drop all queued strikes and cooldowns (disconnect / world change)
      */
-    private static class EffectData {
-        final PlayerEntity player;
-        final long startTime;
-        
-        EffectData(PlayerEntity player, long startTime) {
-            this.player = player;
-            this.startTime = startTime;
+    public static void clear() {
+        if (droppedRequests > 0) {
+            DetectorLog.info("[KitEffectRenderer] {} kit effect requests coalesced or dropped this session", droppedRequests);
+        }
+        pending.clear();
+        for (TickScheduler.Timer timer : cooldowns.values()) {
+            timer.cancel();
+        }
+        cooldowns.clear();
+        if (drainTimer != null) {
+            drainTimer.cancel();
+            drainTimer = null;
+        }
+        droppedRequests = 0;
+    }
+
+    private static class PendingStrike {
+        final WeakReference<PlayerEntity> player;
+        final long requestTime;
+
+        PendingStrike(PlayerEntity player, long requestTime) {
+            this.player = new WeakReference<>(player);
+            this.requestTime = requestTime;
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+package net.infiniteimperm.fabric.tagger;
+
+import com.mojang.datafixers.util.Pair;
+import it.unimi.dsi.fastutil.ints.Int2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EquipmentSlot;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.network.packet.s2c.play.EntityStatusS2CPacket;
+import net.minecraft.text.Text;
+
+import java.util.List;
+
+/**
+ * Ghost detection for other players. The hands of every other player are tracked from entity
+ * equipment update packets (EquipmentUpdateMixin), and a ghost is flagged when one of them dies
+ * (status 3, or their death line in chat) while still shown holding a totem and without a
+ * status-35 pop within GhostTotemDetector.popWindowMillis. Equips, pops and deaths are timed by
+ * their Netty arrival stamps (PacketTimestamps), like the local detector.
+ * State is kept per entity id in primitive maps and only touched when a packet arrives: there is
+ * no per-tick scan, and updates neither box nor allocate. Client thread only.
+ */
+public final class OpponentGhostTracker {
+
+    private static final byte MAIN_TOTEM = 1;
+    private static final byte OFF_TOTEM = 2;
+
+    private static final Int2ByteOpenHashMap hands = new Int2ByteOpenHashMap(); // Totem bits per entity id
+    private static final Int2LongOpenHashMap equipNanos = new Int2LongOpenHashMap(); // When the totem was first shown
+    private static final Int2LongOpenHashMap popNanos = new Int2LongOpenHashMap(); // Last status-35 pop
+
+    private OpponentGhostTracker() {
+    }
+
+    public static void register() {
+        EntityStatusDispatch.register(EntityStatusDispatch.TOTEM_POP, OpponentGhostTracker::onPop);
+        EntityStatusDispatch.register(EntityStatusDispatch.DEATH, OpponentGhostTracker::onDeathStatus);
+    }
+
+    /**
+     * Called by EquipmentUpdateMixin with the slots the packet changed (other slots keep their state)
+     * @param arrivalNano network arrival of the packet
+     */
+    public static void onEquipmentUpdate(int entityId, List<Pair<EquipmentSlot, ItemStack>> equipment, long arrivalNano) {
+        if (entityId == PacketTimestamps.getLocalPlayerId()) {
+            return;
+        }
+        byte previous = hands.get(entityId);
+        byte current = previous;
+        for (int i = 0; i < equipment.size(); i++) {
+            Pair<EquipmentSlot, ItemStack> change = equipment.get(i);
+            byte bit = switch (change.getFirst()) {
+                case MAINHAND -> MAIN_TOTEM;
+                case OFFHAND -> OFF_TOTEM;
+                default -> 0;
+            };
+            if (bit == 0) {
+                continue;
+            }
+            if (change.getSecond().isOf(Items.TOTEM_OF_UNDYING)) {
+                current |= bit;
+            } else {
+                current &= (byte) ~bit;
+            }
+        }
+        if (current == previous) {
+            return;
+        }
+        if (current == 0) {
+            hands.remove(entityId);
+            equipNanos.remove(entityId);
+        } else {
+            hands.put(entityId, current);
+            if (previous == 0) {
+                equipNanos.put(entityId, arrivalNano);
+            }
+        }
+    }
+
+    private static void onPop(int entityId, EntityStatusS2CPacket packet) {
+        if (entityId != PacketTimestamps.getLocalPlayerId()) {
+            popNanos.put(entityId, PacketTimestamps.arrivalOf(packet));
+        }
+    }
+
+    private static void onDeathStatus(int entityId, EntityStatusS2CPacket packet) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        Entity entity = client.world != null ? client.world.getEntityById(entityId) : null;
+        if (entity instanceof PlayerEntity player) {
+            onDeath(entityId, player.getGameProfile().getName(), "status", PacketTimestamps.arrivalOf(packet));
+        } else {
+            forget(entityId);
+        }
+    }
+
+    /**
+     * Death line in chat for any player; ignored if their death status was already handled
+     */
+    public static void onDeathMessage(String victimName, long arrivalNano) {
+        PlayerEntity player = PlayerIndex.get(victimName);
+        if (player != null && player.getId() != PacketTimestamps.getLocalPlayerId()) {
+            onDeath(player.getId(), player.getGameProfile().getName(), "chat", arrivalNano);
+        }
+    }
+
+    private static void onDeath(int entityId, String name, String signal, long deathNano) {
+        byte held = hands.remove(entityId);
+        long equippedAt = equipNanos.remove(entityId);
+        long poppedAt = popNanos.remove(entityId);
+        if (held == 0) {
+            return;
+        }
+        if (poppedAt != 0 && deathNano - poppedAt <= GhostTotemDetector.popWindowMillis * 1_000_000L) {
+            return; // The totem was used; the equipment update for it just hadn't arrived
+        }
+
+        String handType = (held & OFF_TOTEM) != 0 ? "Offhand" : "Mainhand";
+        long heldNanos = equippedAt != 0 ? deathNano - equippedAt : 0;
+        long heldMillis = heldNanos / 1_000_000;
+        long heldTicks = Math.round(heldMillis / ServerTiming.expectedMillis(1)); // At the measured tick rate
+        DetectorLog.info("[OpponentGhost] {} died holding a {} totem without a pop (held {} ms, via {})",
+            name, handType.toLowerCase(), heldMillis, signal);
+        DetectionJournal.append(DetectionJournal.TYPE_OPPONENT_GHOST, DetectionJournal.hand(handType), heldNanos,
+            heldTicks, DetectionJournal.nameHash(name));
+
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player != null) {
+            client.player.sendMessage(Text.literal("§c[Ghost Detector] " + name + " ghosted §7(" + handType + ", held "
+                + heldMillis + "ms, no pop)"), false);
+        }
+    }
+
+    public static void onEntityUnload(Entity entity) {
+        forget(entity.getId());
+    }
+
+    private static void forget(int entityId) {
+        hands.remove(entityId);
+        equipNanos.remove(entityId);
+        popNanos.remove(entityId);
+    }
+
+    public static void clear() {
+        hands.clear();
+        equipNanos.clear();
+        popNanos.clear();
+    }
+}
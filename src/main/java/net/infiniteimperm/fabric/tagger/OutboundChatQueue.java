@@ -0,0 +1,182 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Rate-limited queue for the chat messages and whispers the mod sends on its own (macro mode),
+ * so several death signals in quick succession cannot trip the server's spam kick.
+ * - Token bucket with a capacity of one message refilled every SEND_INTERVAL_MILLIS: vanilla adds
+ *   20 to the spam counter per message and removes 1 per tick, so one message a second is the
+ *   fastest sustained rate that never accumulates, and a capacity of one means no bursts.
+ * - A report with the same dedup key (the caller's, e.g. one per death event) as one sent or
+ *   queued within DEDUP_WINDOW_MILLIS is not sent again.
+ * - Reports queued for the same recipient are merged into one message while it fits the chat
+ *   length limit, so nothing queued is lost.
+ * The queue drains on the TickScheduler. Client thread only.
+ */
+public final class OutboundChatQueue {
+
+    private static final long SEND_INTERVAL_MILLIS = 1000;
+    private static final int BUCKET_CAPACITY = 1;
+    private static final long DEDUP_WINDOW_MILLIS = 5000;
+    private static final int MAX_CHAT_LENGTH = 256; // Vanilla limit for messages and commands
+    private static final String MERGE_SEPARATOR = " | ";
+
+    private static final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    private static final HashMap<String, Long> recentlySent = new HashMap<>(); // Dedup key -> send time
+    private static double tokens = BUCKET_CAPACITY;
+    private static long lastRefillMillis = 0;
+    private static TickScheduler.Timer drainTimer = null;
+
+    private OutboundChatQueue() {
+    }
+
+    /**
+     * Queue a public chat message; messages with the same dedupKey within the window are one report.
+     */
+    public static void sendMessage(String message, String dedupKey) {
+        enqueue(null, message, dedupKey);
+    }
+
+    /**
+     * Queue a whisper ("/w player message"); dedupKey is recipient-independent, so a public and a private copy of the
+     * same report are one report too.
+     */
+    public static void whisper(String player, String message, String dedupKey) {
+        enqueue(player, message, dedupKey);
+    }
+
+    private static void enqueue(String recipient, String text, String key) {
+        long now = DetectorClock.currentTimeMillis();
+        Long sentAt = recentlySent.get(key);
+        if (sentAt != null && now - sentAt < DEDUP_WINDOW_MILLIS) {
+            DetectorLog.info("[Outbound] Dropped duplicate report: {}", text);
+            return;
+        }
+
+        for (Outbound queued : queue) {
+            if (queued.containsKey(key)) {
+                DetectorLog.info("[Outbound] Report already queued: {}", text);
+                return;
+            }
+        }
+
+        // Merge into a queued message for the same recipient if there is room
+        for (Outbound queued : queue) {
+            if (sameRecipient(queued.recipient, recipient) && queued.lengthWith(text) <= MAX_CHAT_LENGTH) {
+                queued.merge(text, key);
+                DetectorLog.info("[Outbound] Merged report into queued message ({} queued)", queue.size());
+                return;
+            }
+        }
+
+        queue.addLast(new Outbound(recipient, text, key));
+        if (drainTimer == null) {
+            drain(); // Sends right away if a token is available, otherwise schedules the drain
+        }
+    }
+
+    // Send as many queued messages as the bucket allows, then schedule the next attempt
+    private static void drain() {
+        drainTimer = null;
+        MinecraftClient client = MinecraftClient.getInstance();
+        ClientPlayNetworkHandler handler = client.getNetworkHandler();
+        if (handler == null) {
+            queue.clear();
+            return;
+        }
+
+        long now = DetectorClock.currentTimeMillis();
+        refill(now);
+        while (!queue.isEmpty() && tokens >= 1) {
+            Outbound next = queue.pollFirst();
+            tokens -= 1;
+            String text = next.text.toString();
+            if (next.recipient != null) {
+                handler.sendChatCommand("w " + next.recipient + " " + text);
+            } else {
+                handler.sendChatMessage(text);
+            }
+            for (String sentKey : next.keys) {
+                recentlySent.put(sentKey, now);
+            }
+            DetectorLog.info("[Outbound] Sent {} ({} still queued)", next.recipient != null ? "whisper to " + next.recipient : "chat message", queue.size());
+        }
+        pruneRecent(now);
+
+        if (!queue.isEmpty() && drainTimer == null) {
+            long wait = (long) Math.ceil((1 - tokens) * SEND_INTERVAL_MILLIS);
+            drainTimer = TickScheduler.schedule(wait, OutboundChatQueue::drain);
+        }
+    }
+
+    private static void refill(long now) {
+        if (lastRefillMillis == 0) {
+            lastRefillMillis = now;
+        }
+        tokens = Math.min(BUCKET_CAPACITY, tokens + (double) (now - lastRefillMillis) / SEND_INTERVAL_MILLIS);
+        lastRefillMillis = now;
+    }
+
+    private static void pruneRecent(long now) {
+        if (recentlySent.size() < 32) {
+            return;
+        }
+        Iterator<Long> it = recentlySent.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next() >= DEDUP_WINDOW_MILLIS) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Disconnected: messages for the old server are no longer meaningful.
+     */
+    public static void clear() {
+        queue.clear();
+        recentlySent.clear();
+        if (drainTimer != null) {
+            drainTimer.cancel();
+            drainTimer = null;
+        }
+        tokens = BUCKET_CAPACITY;
+        lastRefillMillis = 0;
+    }
+
+    private static boolean sameRecipient(String a, String b) {
+        return a == null ? b == null : a.equalsIgnoreCase(b);
+    }
+
+    private static class Outbound {
+        final String recipient; // null = public chat
+        final StringBuilder text;
+        final ArrayDeque<String> keys = new ArrayDeque<>(2); // Dedup keys of the merged reports
+
+        Outbound(String recipient, String text, String key) {
+            this.recipient = recipient;
+            this.text = new StringBuilder(text);
+            this.keys.add(key);
+        }
+
+        boolean containsKey(String key) {
+            return keys.contains(key);
+        }
+
+        // Length of the message on the wire if another part were merged in
+        int lengthWith(String part) {
+            int prefix = recipient == null ? 0 : ("w " + recipient + " ").length();
+            return prefix + text.length() + MERGE_SEPARATOR.length() + part.length();
+        }
+
+        void merge(String part, String key) {
+            text.append(MERGE_SEPARATOR).append(part);
+            keys.add(key);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.client.MinecraftClient;
+
+/**
+ * Monotonic arrival timestamps for the packets the ghost detector times against.
+ * The packet mixins record System.nanoTime() at HEAD while still on the Netty thread (before
+ * the handler re-schedules itself onto the client thread), so durations measure when the
+ * server's packet actually arrived rather than where the client tick happened to fall.
+ * Every packet is stamped individually (a field added by PacketStampMixin), so bursts such as an
+ * offhand swap or a death clear keep the arrival time of each packet. The Stamp per kind only
+ * remembers the latest arrival, for the tick's "did one arrive since" checks.
+ */
+public class PacketTimestamps {
+
+    public static final Stamp HEALTH = new Stamp();
+    public static final Stamp GAME_MODE = new Stamp();
+
+    // Entity id of the local player, cached on the client thread so the Netty thread can
+    // filter status packets without touching the world
+    private static volatile int localPlayerId = Integer.MIN_VALUE;
+
+    /**
+     * True when called from the network thread, i.e. the first (arrival) pass of a packet handler.
+     */
+    public static boolean isNetworkThread() {
+        return !MinecraftClient.getInstance().isOnThread();
+    }
+
+    public static void setLocalPlayerId(int id) {
+        localPlayerId = id;
+    }
+
+    public static int getLocalPlayerId() {
+        return localPlayerId;
+    }
+
+    /**
+     * Stamp a packet with its arrival time. Called on the Netty thread; the packet must be one of
+     * the PacketStampMixin targets.
+     * @return the arrival time
+     */
+    public static long stamp(Object packet) {
+        long nanos = System.nanoTime();
+        ((ArrivalStamped) packet).tagger$setArrivalNanos(nanos);
+        return nanos;
+    }
+
+    /**
+     * Arrival time of the given packet, or now if it was not stamped (e.g. handled on the client
+     * thread directly, as in singleplayer).
+     */
+    public static long arrivalOf(Object packet) {
+        long nanos = ((ArrivalStamped) packet).tagger$getArrivalNanos();
+        return nanos != 0 ? nanos : System.nanoTime();
+    }
+
+    /**
+     * Latest arrival of one packet kind.
+     */
+    public static class Stamp {
+        private volatile long arrivalNanos;
+
+        // Called on the Netty thread when a packet of this kind arrives
+        public void record(long nanos) {
+            this.arrivalNanos = nanos;
+        }
+
+        /**
+         * Arrival time of the latest packet if it arrived after the given time, otherwise the fallback.
+         */
+        public long arrivedSince(long sinceNanos, long fallbackNanos) {
+            long nanos = arrivalNanos;
+            return nanos > sinceNanos ? nanos : fallbackNanos;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+
+/**
+ * Low-overhead timers around the mod's entry points, shown with /gd perf.
+ * Usage: {@code long t = PerfTimers.start(); ... PerfTimers.stop(PerfTimers.TICK, t);}
+ * When disabled, start() is a static field read returning 0 and stop() returns immediately, so
+ * the hooks cost next to nothing. Histograms are preallocated and only touched on the client
+ * thread (every instrumented hook runs there), so recording never allocates or locks.
+ */
+public class PerfTimers {
+
+    public static final int TICK = 0;
+    public static final int CHAT = 1;
+    public static final int HUD = 2;
+    public static final int COMMAND_MIXIN = 3;
+    public static final int TOTEM_POP_MIXIN = 4;
+    public static final int LIGHTNING = 5;
+
+    private static final String[] NAMES = {
+        "Client tick", "Chat receive", "HUD render", "Command mixin", "Totem pop mixin", "Kit lightning"
+    };
+    private static final LogHistogram[] HISTOGRAMS = new LogHistogram[NAMES.length];
+    private static final long[] TOTAL_NANOS = new long[NAMES.length];
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new LogHistogram();
+        }
+    }
+
+    private static boolean enabled = false;
+    private static long windowStartNano = 0; // Wall time the current measurement window started
+    private static long frames = 0; // HUD renders since windowStartNano, one per frame
+
+    /**
+     * @return the start timestamp, or 0 when instrumentation is off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void stop(int hook, long startNano) {
+        if (startNano == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNano;
+        HISTOGRAMS[hook].record(elapsed);
+        TOTAL_NANOS[hook] += elapsed;
+        if (hook == HUD) {
+            frames++;
+        }
+    }
+
+    public static void setEnabled(boolean enable) {
+        if (enable && !enabled) {
+            reset();
+        }
+        enabled = enable;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player != null) {
+            String statusMessage = enabled ?
+                "§a[Ghost Detector] Performance timers ENABLED" :
+                "§c[Ghost Detector] Performance timers DISABLED";
+            client.player.sendMessage(Text.literal(statusMessage), false);
+        }
+        DetectorLog.info("[Perf] Timers toggled to: {}", enabled);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void reset() {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i].reset();
+            TOTAL_NANOS[i] = 0;
+        }
+        frames = 0;
+        windowStartNano = System.nanoTime();
+    }
+
+    /**
+     * Per-hook mean/p99/max in microseconds, plus each hook's share of the average frame time
+     * (hook time per frame divided by wall time per frame, over the window since timers were enabled).
+     */
+    public static void show(FabricClientCommandSource source) {
+        if (windowStartNano == 0) {
+            source.sendFeedback(Text.literal("§c[Ghost Detector] No timings yet, enable with /gd perf on"));
+            return;
+        }
+        long wallNanos = System.nanoTime() - windowStartNano;
+        double frameNanos = frames == 0 ? 0 : (double) wallNanos / frames;
+        StringBuilder lines = new StringBuilder("§6Ghost Detector perf §7(")
+            .append(enabled ? "running" : "stopped").append(", ")
+            .append(frames).append(" frames");
+        if (frameNanos > 0) {
+            lines.append(", ").append(format(frameNanos / 1_000_000.0)).append("ms/frame");
+        }
+        lines.append(", mean/p99/max µs)");
+        for (int i = 0; i < NAMES.length; i++) {
+            LogHistogram histogram = HISTOGRAMS[i];
+            lines.append("\n§e").append(NAMES[i]).append(" §7(n=").append(histogram.count()).append("): §f");
+            if (histogram.count() == 0) {
+                lines.append("-");
+                continue;
+            }
+            lines.append(format(histogram.mean() / 1_000.0)).append(" / ")
+                .append(format(histogram.percentile(99) / 1_000.0)).append(" / ")
+                .append(format(histogram.max() / 1_000.0));
+            if (wallNanos > 0) {
+                // Total hook time over total wall time = average share of every frame spent here
+                lines.append(" §7(").append(format(TOTAL_NANOS[i] * 100.0 / wallNanos)).append("% of frame)");
+            }
+        }
+        lines.append("\n§eScheduler: §f").append(TickScheduler.size()).append(" timers pending, ")
+            .append(TickScheduler.getDeferredCount()).append(" deferrable runs pushed back (tick over budget)");
+        source.sendFeedback(Text.literal(lines.toString()));
+    }
+
+    private static String format(double value) {
+        return value >= 100 ? String.valueOf(Math.round(value)) : String.format("%.2f", value);
+    }
+}
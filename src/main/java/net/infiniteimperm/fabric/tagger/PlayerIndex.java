@@ -0,0 +1,180 @@
+package net.infiniteimperm.fabric.tagger;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Index of the players loaded in the client world, kept up to date from entity load/unload events
+ * and re-bucketed once per tick as players move. Replaces world.getEntitiesByClass scans:
+ * "is player X nearby" is a name lookup plus a distance check, and "who is within 16 blocks"
+ * only visits the 3x3 grid cells around the centre.
+ */
+public class PlayerIndex {
+
+    private static final int CELL_SIZE = 16; // Blocks per grid cell on the X/Z plane
+
+    private static final HashMap<String, Entry> byName = new HashMap<>();
+    private static final Int2ObjectOpenHashMap<Entry> byId = new Int2ObjectOpenHashMap<>();
+    private static final Long2ObjectOpenHashMap<ArrayList<PlayerEntity>> cells = new Long2ObjectOpenHashMap<>();
+    private static final ArrayList<Entry> entries = new ArrayList<>(); // Dense list for per-tick re-bucketing
+
+    /**
+     * Called from ClientEntityEvents.ENTITY_LOAD
+     */
+    public static void onEntityLoad(Entity entity) {
+        if (!(entity instanceof PlayerEntity player) || byId.containsKey(player.getId())) {
+            return;
+        }
+        Entry entry = new Entry(player, player.getGameProfile().getName());
+        entry.cellKey = cellKey(player.getX(), player.getZ());
+        entry.index = entries.size();
+        entries.add(entry);
+        byId.put(player.getId(), entry);
+        byName.put(entry.name, entry);
+        cells.computeIfAbsent(entry.cellKey, key -> new ArrayList<>()).add(player);
+    }
+
+    /**
+     * Called from ClientEntityEvents.ENTITY_UNLOAD
+     */
+    public static void onEntityUnload(Entity entity) {
+        if (!(entity instanceof PlayerEntity)) {
+            return;
+        }
+        Entry entry = byId.remove(entity.getId());
+        if (entry == null) {
+            return;
+        }
+        if (byName.get(entry.name) == entry) {
+            byName.remove(entry.name);
+        }
+        removeFromCell(entry.cellKey, entry.player);
+
+        // Swap-remove from the dense list
+        Entry last = entries.remove(entries.size() - 1);
+        if (last != entry) {
+            entries.set(entry.index, last);
+            last.index = entry.index;
+        }
+    }
+
+    /**
+     * Move players whose position crossed a cell boundary. Called once per client tick.
+     */
+    public static void tick() {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            long key = cellKey(entry.player.getX(), entry.player.getZ());
+            if (key != entry.cellKey) {
+                removeFromCell(entry.cellKey, entry.player);
+                cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entry.player);
+                entry.cellKey = key;
+            }
+        }
+    }
+
+    /**
+     * Forget all players (disconnect / world change)
+     */
+    public static void clear() {
+        byName.clear();
+        byId.clear();
+        cells.clear();
+        entries.clear();
+    }
+
+    /**
+     * Find a loaded player by exact name, wherever they are
+     * @return the player, or null if not loaded
+     */
+    public static PlayerEntity get(String name) {
+        Entry entry = byName.get(name);
+        return entry != null ? entry.player : null;
+    }
+
+    /**
+     * Find a player by exact name within a cube of the given half-size around center.
+     * @return the player, or null if unknown, excluded or out of range
+     */
+    public static PlayerEntity findNearby(String name, Vec3d center, double range, Entity exclude) {
+        Entry entry = byName.get(name);
+        if (entry == null || entry.player == exclude) {
+            return null;
+        }
+        return inRange(entry.player, center, range) ? entry.player : null;
+    }
+
+    /**
+     * Fill {@code out} with the players within a cube of the given half-size around center.
+     * The list is cleared first so callers can reuse it.
+     */
+    public static void collectNearby(Vec3d center, double range, Entity exclude, List<PlayerEntity> out) {
+        out.clear();
+        int minX = MathHelper.floor((center.x - range) / CELL_SIZE);
+        int maxX = MathHelper.floor((center.x + range) / CELL_SIZE);
+        int minZ = MathHelper.floor((center.z - range) / CELL_SIZE);
+        int maxZ = MathHelper.floor((center.z + range) / CELL_SIZE);
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                ArrayList<PlayerEntity> cell = cells.get(pack(cx, cz));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size(); i++) {
+                    PlayerEntity player = cell.get(i);
+                    if (player != exclude && inRange(player, center, range)) {
+                        out.add(player);
+                    }
+                }
+            }
+        }
+    }
+
+    public static int size() {
+        return entries.size();
+    }
+
+    private static boolean inRange(PlayerEntity player, Vec3d center, double range) {
+        return Math.abs(player.getX() - center.x) <= range
+            && Math.abs(player.getY() - center.y) <= range
+            && Math.abs(player.getZ() - center.z) <= range;
+    }
+
+    private static void removeFromCell(long key, PlayerEntity player) {
+        ArrayList<PlayerEntity> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(player);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private static long cellKey(double x, double z) {
+        return pack(MathHelper.floor(x / CELL_SIZE), MathHelper.floor(z / CELL_SIZE));
+    }
+
+    private static long pack(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private static class Entry {
+        final PlayerEntity player;
+        final String name;
+        long cellKey;
+        int index;
+
+        Entry(PlayerEntity player, String name) {
+            this.player = player;
+            this.name = name;
+        }
+    }
+}
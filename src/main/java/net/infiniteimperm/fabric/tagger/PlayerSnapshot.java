@@ -0,0 +1,243 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.world.GameMode;
+
+/**
+ * The local player's state as captured once per tick (GhostTotemDetector.tickPlayer), so every
+ * detector and the HUD overlay read the same facts and the inventory is walked at most once per
+ * tick. Inventory packets re-capture the inventory part between ticks (refreshInventory) so
+ * packet-driven totem tracking and the overlay see the change right away.
+ * The tick only re-walks the inventory when it may have changed without a packet: a different
+ * inventory instance, change counter or selected slot (clicks and hotbar scrolling are
+ * client-side), plus once every FULL_WALK_TICKS as a safety net. On quiet ticks only the vitals
+ * are captured.
+ * A single reused instance: read-only to everyone but the capture methods. Client thread only.
+ */
+public final class PlayerSnapshot {
+
+    private static final PlayerSnapshot CURRENT = new PlayerSnapshot();
+    private static final int FULL_WALK_TICKS = 20;
+
+    // What the last inventory walk saw, to skip the walk on ticks with no inventory change
+    private static PlayerInventory walkedInventory = null;
+    private static int walkedChangeCount = -1;
+    private static int walkedSelectedSlot = -1;
+    private static int ticksSinceWalk = 0;
+
+    private boolean valid;
+    private long version; // Bumped only when a captured field changed, so derived state (CommandRules) is reused until then
+    private int selectedSlot;
+    private Item mainHandItem = Items.AIR;
+    private Item offHandItem = Items.AIR;
+    private boolean mainHandTotem;
+    private boolean offHandTotem;
+    private int totemCount; // Main inventory + offhand
+    private int emptySlots; // Main inventory (0-35) only
+    private int emptyHotbarSlots; // Slots 0-8
+    private float averageArmorDurability = 1.0f; // Remaining durability 0-1 over damageable armor worn
+    private float lowestArmorDurability = 1.0f;
+    private float health;
+    private boolean dead;
+    private GameMode gameMode;
+
+    private PlayerSnapshot() {
+    }
+
+    public static PlayerSnapshot current() {
+        return CURRENT;
+    }
+
+    /**
+     * Full capture at the start of a tick.
+     */
+    static PlayerSnapshot capture(PlayerInventory inventory, float health, boolean dead, GameMode gameMode) {
+        PlayerSnapshot snapshot = CURRENT;
+        if (snapshot.health != health || snapshot.dead != dead || snapshot.gameMode != gameMode) {
+            snapshot.health = health;
+            snapshot.dead = dead;
+            snapshot.gameMode = gameMode;
+            snapshot.version++;
+        }
+        if (snapshot.valid && inventory == walkedInventory && inventory.getChangeCount() == walkedChangeCount
+                && inventory.selectedSlot == walkedSelectedSlot && ++ticksSinceWalk < FULL_WALK_TICKS) {
+            return snapshot;
+        }
+        return refreshInventory(inventory);
+    }
+
+    /**
+     * Re-capture only the inventory (after an inventory packet or click); vitals keep the tick's values.
+     */
+    static PlayerSnapshot refreshInventory(PlayerInventory inventory) {
+        PlayerSnapshot snapshot = CURRENT;
+        walkedInventory = inventory;
+        walkedChangeCount = inventory.getChangeCount();
+        walkedSelectedSlot = inventory.selectedSlot;
+        ticksSinceWalk = 0;
+        int totems = 0;
+        int empty = 0;
+        int emptyHotbar = 0;
+        // Indexed loop: this is the one inventory walk per tick, avoid the iterator
+        for (int i = 0; i < inventory.main.size(); i++) {
+            ItemStack stack = inventory.main.get(i);
+            if (stack.isEmpty()) {
+                empty++;
+                if (i < PlayerInventory.getHotbarSize()) {
+                    emptyHotbar++;
+                }
+            } else if (stack.getItem() == Items.TOTEM_OF_UNDYING) {
+                totems += stack.getCount();
+            }
+        }
+        ItemStack offHandStack = inventory.offHand.get(0);
+        if (offHandStack.getItem() == Items.TOTEM_OF_UNDYING) {
+            totems += offHandStack.getCount();
+        }
+
+        float totalDurability = 0;
+        float lowestDurability = 1.0f;
+        int armorPieces = 0;
+        for (int i = 0; i < inventory.armor.size(); i++) {
+            ItemStack armor = inventory.armor.get(i);
+            if (!armor.isEmpty() && armor.isDamageable()) {
+                float durability = (float) (armor.getMaxDamage() - armor.getDamage()) / armor.getMaxDamage();
+                totalDurability += durability;
+                lowestDurability = Math.min(lowestDurability, durability);
+                armorPieces++;
+            }
+        }
+
+        int selectedSlot = inventory.selectedSlot;
+        Item mainHand = inventory.main.get(selectedSlot).getItem();
+        Item offHand = offHandStack.getItem();
+        float averageDurability = armorPieces > 0 ? totalDurability / armorPieces : 1.0f;
+        if (snapshot.valid && snapshot.selectedSlot == selectedSlot && snapshot.mainHandItem == mainHand
+                && snapshot.offHandItem == offHand && snapshot.totemCount == totems && snapshot.emptySlots == empty
+                && snapshot.emptyHotbarSlots == emptyHotbar && snapshot.averageArmorDurability == averageDurability
+                && snapshot.lowestArmorDurability == lowestDurability) {
+            return snapshot; // Unchanged: keep the version so cached verdicts stay valid
+        }
+
+        snapshot.selectedSlot = selectedSlot;
+        snapshot.mainHandItem = mainHand;
+        snapshot.offHandItem = offHand;
+        snapshot.mainHandTotem = mainHand == Items.TOTEM_OF_UNDYING;
+        snapshot.offHandTotem = offHand == Items.TOTEM_OF_UNDYING;
+        snapshot.totemCount = totems;
+        snapshot.emptySlots = empty;
+        snapshot.emptyHotbarSlots = emptyHotbar;
+        snapshot.averageArmorDurability = averageDurability;
+        snapshot.lowestArmorDurability = lowestDurability;
+        snapshot.valid = true;
+        snapshot.version++;
+        return snapshot;
+    }
+
+    /**
+     * No player (title screen, disconnect): readers see "nothing held, nothing to warn about".
+     */
+    static void clear() {
+        PlayerSnapshot snapshot = CURRENT;
+        walkedInventory = null;
+        if (!snapshot.valid) {
+            return; // Already cleared (every tick on the title screen)
+        }
+        snapshot.valid = false;
+        snapshot.version++;
+        snapshot.mainHandItem = Items.AIR;
+        snapshot.offHandItem = Items.AIR;
+        snapshot.mainHandTotem = false;
+        snapshot.offHandTotem = false;
+        snapshot.totemCount = 0;
+        snapshot.emptySlots = 0;
+        snapshot.emptyHotbarSlots = 0;
+        snapshot.averageArmorDurability = 1.0f;
+        snapshot.lowestArmorDurability = 1.0f;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getSelectedSlot() {
+        return selectedSlot;
+    }
+
+    public Item getMainHandItem() {
+        return mainHandItem;
+    }
+
+    public Item getOffHandItem() {
+        return offHandItem;
+    }
+
+    public boolean isMainHandTotem() {
+        return mainHandTotem;
+    }
+
+    public boolean isOffHandTotem() {
+        return offHandTotem;
+    }
+
+    public boolean isHoldingTotem() {
+        return mainHandTotem || offHandTotem;
+    }
+
+    // "Mainhand", "Offhand" or "Unknown", as used in reports and the journal
+    public String getTotemHand() {
+        return mainHandTotem ? "Mainhand" : (offHandTotem ? "Offhand" : "Unknown");
+    }
+
+    public boolean isMainHandEmpty() {
+        return mainHandItem == Items.AIR;
+    }
+
+    public boolean isOffHandEmpty() {
+        return offHandItem == Items.AIR;
+    }
+
+    public int getTotemCount() {
+        return totemCount;
+    }
+
+    // Not holding a totem but carrying one: what the HUD warning shows
+    public boolean shouldWarn() {
+        return !mainHandTotem && !offHandTotem && totemCount > 0;
+    }
+
+    public int getEmptySlots() {
+        return emptySlots;
+    }
+
+    public int getEmptyHotbarSlots() {
+        return emptyHotbarSlots;
+    }
+
+    public float getAverageArmorDurability() {
+        return averageArmorDurability;
+    }
+
+    public float getLowestArmorDurability() {
+        return lowestArmorDurability;
+    }
+
+    public float getHealth() {
+        return health;
+    }
+
+    public boolean isDead() {
+        return dead;
+    }
+
+    public GameMode getGameMode() {
+        return gameMode;
+    }
+}
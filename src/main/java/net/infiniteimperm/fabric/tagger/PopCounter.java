@@ -0,0 +1,140 @@
+package net.infiniteimperm.fabric.tagger;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.network.packet.s2c.play.EntityStatusS2CPacket;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+/**
+ * Totem pops per opponent, counted from status 35 on EntityStatusDispatch.
+ * Counts are keyed by entity id in a primitive map, so the packet path neither boxes nor
+ * allocates. A count resets when the entity dies (status 3) or unloads; a respawned player is a
+ * new entity with a new id. Shown by /gd pops and, when enabled, after the player's nametag
+ * (see EntityRendererMixin). The decorated nametag is cached per entity and only rebuilt when the
+ * count or the player's own display name changes, so rendering it allocates nothing.
+ * Client thread only.
+ */
+public final class PopCounter {
+
+    private static final int CACHED_SUFFIXES = 64;
+
+    private static final Int2IntOpenHashMap pops = new Int2IntOpenHashMap();
+    private static final Text[] suffixes = new Text[CACHED_SUFFIXES]; // Built on first use per count
+    private static final Int2ObjectOpenHashMap<Nametag> nametags = new Int2ObjectOpenHashMap<>();
+    private static boolean showOnNametags = false;
+
+    private PopCounter() {
+    }
+
+    public static void register() {
+        EntityStatusDispatch.register(EntityStatusDispatch.TOTEM_POP, PopCounter::onPop);
+        EntityStatusDispatch.register(EntityStatusDispatch.DEATH, PopCounter::onDeath);
+    }
+
+    private static void onPop(int entityId, EntityStatusS2CPacket packet) {
+        if (entityId != PacketTimestamps.getLocalPlayerId()) {
+            pops.addTo(entityId, 1);
+        }
+    }
+
+    private static void onDeath(int entityId, EntityStatusS2CPacket packet) {
+        pops.remove(entityId);
+        nametags.remove(entityId);
+    }
+
+    public static void onEntityUnload(Entity entity) {
+        pops.remove(entity.getId());
+        nametags.remove(entity.getId());
+    }
+
+    public static void clear() {
+        pops.clear();
+        nametags.clear();
+    }
+
+    public static int getPops(int entityId) {
+        return pops.get(entityId); // Default return value is 0
+    }
+
+    public static void toggleNametags() {
+        showOnNametags = !showOnNametags;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player != null) {
+            String statusMessage = showOnNametags ?
+                "§a[Ghost Detector] Nametag pop counts ENABLED" :
+                "§c[Ghost Detector] Nametag pop counts DISABLED";
+            client.player.sendMessage(Text.literal(statusMessage), false);
+        }
+        DetectorLog.info("[PopCounter] Nametag pop counts toggled to: {}", showOnNametags);
+    }
+
+    /**
+     * The entity's nametag with its pop count appended, or displayName itself when there is nothing
+     * to append. Called per rendered player per frame.
+     */
+    public static Text decorateNametag(int entityId, Text displayName) {
+        if (!showOnNametags) {
+            return displayName;
+        }
+        int count = pops.get(entityId);
+        if (count <= 0) {
+            return displayName;
+        }
+        Nametag cached = nametags.get(entityId);
+        if (cached == null) {
+            cached = new Nametag();
+            nametags.put(entityId, cached);
+        } else if (cached.count == count && (cached.base == displayName || cached.base.equals(displayName))) {
+            return cached.decorated; // The vanilla name is rebuilt each frame but compares equal
+        }
+        cached.base = displayName;
+        cached.count = count;
+        cached.decorated = displayName.copy().append(suffixFor(count));
+        return cached.decorated;
+    }
+
+    private static Text suffixFor(int count) {
+        if (count >= CACHED_SUFFIXES) {
+            return suffix(count);
+        }
+        Text cached = suffixes[count];
+        if (cached == null) {
+            cached = suffix(count);
+            suffixes[count] = cached;
+        }
+        return cached;
+    }
+
+    private static Text suffix(int count) {
+        return Text.literal(" [" + count + " pop" + (count == 1 ? "]" : "s]")).formatted(Formatting.GOLD);
+    }
+
+    public static void show(FabricClientCommandSource source) {
+        if (pops.isEmpty()) {
+            source.sendFeedback(Text.literal("§6Totem pops §7(none counted)"));
+            return;
+        }
+        ClientWorld world = MinecraftClient.getInstance().world;
+        StringBuilder lines = new StringBuilder("§6Totem pops §7(since last death)");
+        for (Int2IntMap.Entry entry : pops.int2IntEntrySet()) {
+            Entity entity = world != null ? world.getEntityById(entry.getIntKey()) : null;
+            String name = entity instanceof PlayerEntity player ? player.getGameProfile().getName()
+                : (entity != null ? entity.getName().getString() : "#" + entry.getIntKey());
+            lines.append("\n§e").append(name).append(": §f").append(entry.getIntValue());
+        }
+        source.sendFeedback(Text.literal(lines.toString()));
+    }
+
+    private static class Nametag {
+        Text base; // Display name the decorated text was built from
+        int count;
+        Text decorated;
+    }
+}
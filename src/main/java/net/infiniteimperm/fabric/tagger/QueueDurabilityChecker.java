@@ -2,33 +2,42 @@ package net.infiniteimperm.fabric.tagger;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
 public class QueueDurabilityChecker {
     
-    private static final float MIN_DURABILITY_PERCENT = 0.95f; // 95%
+    private static final float MIN_DURABILITY_PERCENT = CommandRules.MIN_ARMOR_DURABILITY;
+    private static final String[] SLOT_NAMES = {"Boots", "Leggings", "Chestplate", "Helmet"};
     private static boolean awaitingConfirmation = false;
     private static String pendingCommand = null;
-    private static long lastWarningTime = 0;
+    private static TickScheduler.Timer confirmationTimeout = null; // Expires the pending confirmation after 30 s
+    private static float lastAverageDurability = -1; // Armor average seen by the last gate check (for JFR)
     
     /**
-     * Check if a command is a queue command
-     */
-    public static boolean isQueueCommand(String command) {
-        String lowerCommand = command.toLowerCase().trim();
-        return lowerCommand.equals("q") || 
-               lowerCommand.equals("rtpqueue") || 
-               lowerCommand.equals("queue");
-    }
-    
-    /**
-     * Process a queue command, checking armor durability first
+     * Process a gated command (see CommandRules), checking the rule's readiness verdict first
      * @param command The command being sent
+     * @param rule The rule the command matched
      * @return true if command should be blocked, false if it should proceed
      */
-    public static boolean processQueueCommand(String command) {
+    public static boolean processGatedCommand(String command, CommandRules.Rule rule) {
+        // The JFR event stays local to this method so it is eliminated entirely when disabled
+        JfrEvents.QueueGate jfrEvent = new JfrEvents.QueueGate();
+        jfrEvent.begin();
+        lastAverageDurability = -1;
+        boolean blocked = gateCommand(command, rule);
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.command = command;
+            jfrEvent.blocked = blocked;
+            jfrEvent.averageDurability = lastAverageDurability;
+            jfrEvent.commit();
+        }
+        return blocked;
+    }
+
+    private static boolean gateCommand(String command, CommandRules.Rule rule) {
         MinecraftClient client = MinecraftClient.getInstance();
         if (client.player == null) {
             return false; // Let command proceed if no player
@@ -36,51 +45,52 @@ public class QueueDurabilityChecker {
         
         // If we're awaiting confirmation and this is the same command, let it through
         if (awaitingConfirmation && command.equals(pendingCommand)) {
-            TaggerMod.LOGGER.info("[QueueDurabilityChecker] Confirmation received, allowing queue command: {}", command);
-            awaitingConfirmation = false;
-            pendingCommand = null;
+            DetectorLog.info("[QueueDurabilityChecker] Confirmation received, allowing {} command: {}", rule.name, command);
+            clearConfirmation();
             
             // Show confirmation message
-            client.player.sendMessage(Text.literal("§aConfirmed! Queueing with damaged gear...").formatted(Formatting.GREEN), false);
+            client.player.sendMessage(Text.literal("§aConfirmed! Sending with unready gear...").formatted(Formatting.GREEN), false);
             return false; // Allow command to proceed
         }
         
-        // Check armor durability
-        ArmorDurabilityResult result = checkArmorDurability(client.player);
+        // Cached verdict, re-derived only when the player snapshot changed
+        int failed = CommandRules.failedChecks(rule);
+        lastAverageDurability = PlayerSnapshot.current().getAverageArmorDurability();
         
-        if (result.allArmorFresh) {
-            // Armor is fresh, let the command through
-            TaggerMod.LOGGER.info("[QueueDurabilityChecker] Armor is fresh ({}% avg), allowing queue command", 
-                Math.round(result.averageDurabilityPercent * 100));
-            awaitingConfirmation = false;
-            pendingCommand = null;
+        if (failed == 0) {
+            // Gear is ready, let the command through
+            clearConfirmation();
             return false; // Allow command to proceed
         } else {
-            // Armor is damaged, block the command and warn the user
-            TaggerMod.LOGGER.info("[QueueDurabilityChecker] Damaged armor detected ({}% avg), blocking queue command", 
-                Math.round(result.averageDurabilityPercent * 100));
+            // Not ready, block the command and warn the user
+            DetectorLog.info("[QueueDurabilityChecker] Blocking {} command /{} ({})", rule.name, command, CommandRules.describe(failed));
             
             // Set up confirmation state
             awaitingConfirmation = true;
             pendingCommand = command;
-            lastWarningTime = System.currentTimeMillis();
+            if (confirmationTimeout != null) {
+                confirmationTimeout.cancel();
+            }
+            confirmationTimeout = TickScheduler.schedule(30000, QueueDurabilityChecker::onConfirmationTimeout); // 30 seconds timeout
             
-            // Send warning to player
-            sendDurabilityWarning(client.player, result);
+            // Send warning to player (per-piece armor breakdown only computed, and logged, when blocking)
+            sendReadinessWarning(client.player, command, failed,
+                (failed & CommandRules.CHECK_ARMOR) != 0 ? checkArmorDurability(client.player.getInventory()) : null);
+            DetectionJournal.append(DetectionJournal.TYPE_COMMAND_BLOCK, rule.id, 0, failed, 0);
             
             return true; // Block the command
         }
     }
     
     /**
-     * Check the durability of all armor pieces
+     * Check the durability of all armor pieces (package-private for the jmh benchmarks)
      */
-    private static ArmorDurabilityResult checkArmorDurability(PlayerEntity player) {
+    static ArmorDurabilityResult checkArmorDurability(PlayerInventory inventory) {
         ItemStack[] armorSlots = {
-            player.getInventory().getArmorStack(0), // Boots
-            player.getInventory().getArmorStack(1), // Leggings  
-            player.getInventory().getArmorStack(2), // Chestplate
-            player.getInventory().getArmorStack(3)  // Helmet
+            inventory.getArmorStack(0), // Boots
+            inventory.getArmorStack(1), // Leggings  
+            inventory.getArmorStack(2), // Chestplate
+            inventory.getArmorStack(3)  // Helmet
         };
         
         boolean allArmorFresh = true;
@@ -88,8 +98,6 @@ public class QueueDurabilityChecker {
         int armorPieces = 0;
         StringBuilder details = new StringBuilder();
         
-        String[] slotNames = {"Boots", "Leggings", "Chestplate", "Helmet"};
-        
         for (int i = 0; i < armorSlots.length; i++) {
             ItemStack armor = armorSlots[i];
             
@@ -106,11 +114,11 @@ public class QueueDurabilityChecker {
                     allArmorFresh = false;
                 }
                 
-                details.append(String.format("%s: %d%% ", 
-                    slotNames[i], Math.round(durabilityPercent * 100)));
+                int percent = Math.round(durabilityPercent * 100);
+                details.append(SLOT_NAMES[i]).append(": ").append(percent).append("% ");
                 
-                TaggerMod.LOGGER.info("[QueueDurabilityChecker] {}: {}% durability ({}/{})", 
-                    slotNames[i], Math.round(durabilityPercent * 100), remainingDurability, maxDamage);
+                DetectorLog.info("[QueueDurabilityChecker] {}: {}% durability ({}/{})", 
+                    SLOT_NAMES[i], percent, remainingDurability, maxDamage);
             }
         }
         
@@ -120,27 +128,40 @@ public class QueueDurabilityChecker {
     }
     
     /**
-     * Send durability warning to the player
+     * Send the readiness warning to the player
+     * @param armor per-piece armor breakdown, or null when armor is not what failed
      */
-    private static void sendDurabilityWarning(PlayerEntity player, ArmorDurabilityResult result) {
-        player.sendMessage(Text.literal("§cREKIT FIRST OR /q again to confirm").formatted(Formatting.RED, Formatting.BOLD), false);
+    private static void sendReadinessWarning(PlayerEntity player, String command, int failed, ArmorDurabilityResult armor) {
+        player.sendMessage(Text.literal("§cREKIT FIRST OR /" + command + " again to confirm").formatted(Formatting.RED, Formatting.BOLD), false);
+        player.sendMessage(Text.literal("§7Not ready: " + CommandRules.describe(failed)), false);
+        if (armor != null && !armor.durabilityDetails.isEmpty()) {
+            player.sendMessage(Text.literal("§7Armor: " + armor.durabilityDetails), false);
+        }
     }
     
     /**
-     * Reset confirmation state (called when player does something else)
+     * Reset confirmation state when the player did not repeat the command in time (scheduled on the TickScheduler)
      */
-    public static void resetConfirmation() {
-        if (awaitingConfirmation && (System.currentTimeMillis() - lastWarningTime) > 30000) { // 30 seconds timeout
-            awaitingConfirmation = false;
-            pendingCommand = null;
-            TaggerMod.LOGGER.info("[QueueDurabilityChecker] Confirmation timeout, reset state");
+    private static void onConfirmationTimeout() {
+        confirmationTimeout = null;
+        awaitingConfirmation = false;
+        pendingCommand = null;
+        DetectorLog.info("[QueueDurabilityChecker] Confirmation timeout, reset state");
+    }
+
+    private static void clearConfirmation() {
+        awaitingConfirmation = false;
+        pendingCommand = null;
+        if (confirmationTimeout != null) {
+            confirmationTimeout.cancel();
+            confirmationTimeout = null;
         }
     }
     
     /**
      * Data class to hold armor durability check results
      */
-    private static class ArmorDurabilityResult {
+    static class ArmorDurabilityResult {
         final boolean allArmorFresh;
         final float averageDurabilityPercent;
         final String durabilityDetails;
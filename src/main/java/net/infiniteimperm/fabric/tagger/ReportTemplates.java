@@ -0,0 +1,92 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+/**
+ * Prebuilt text for detection reports. The static parts (banners, labels, hand names, colors) are
+ * built once as Text components or string prefixes; per event only the numbers and names are
+ * filled in, through one reused StringBuilder, and the in-game alert is sent as a single
+ * multi-line component instead of one chat line per row. Client thread only.
+ */
+public final class ReportTemplates {
+
+    private static final Text NEWLINE = Text.literal("\n");
+    private static final Text BANNER = Text.literal("=".repeat(50)).formatted(Formatting.RED, Formatting.BOLD);
+    private static final Text TITLE = Text.literal("🚨 GHOST TOTEM DETECTED! 🚨").formatted(Formatting.RED, Formatting.BOLD);
+    private static final Text HAND_LABEL = Text.literal("Hand: ").formatted(Formatting.YELLOW);
+    private static final Text DURATION_LABEL = Text.literal("Duration: ").formatted(Formatting.YELLOW);
+    private static final Text SERVER_LABEL = Text.literal("Server: ").formatted(Formatting.YELLOW);
+    private static final Text COPIED = Text.literal("Command copied to clipboard!").formatted(Formatting.GREEN);
+    private static final Text PASTE_HINT = Text.literal("Paste it in chat to report the ghost:").formatted(Formatting.GREEN);
+
+    private static final Text MAIN_HAND = Text.literal("Mainhand").formatted(Formatting.WHITE);
+    private static final Text OFF_HAND = Text.literal("Offhand").formatted(Formatting.WHITE);
+    private static final Text UNKNOWN_HAND = Text.literal("Unknown").formatted(Formatting.WHITE);
+
+    // Public report prefixes, indexed by the DetectionJournal hand codes
+    private static final String[] GHOST_PREFIX = {
+        "<Ghost Detected>", "<Mainhand Ghost Detected>", "<Offhand Ghost Detected>"
+    };
+
+    private static final StringBuilder scratch = new StringBuilder(128);
+
+    private ReportTemplates() {
+    }
+
+    /**
+     * Public report sent to chat or whispered, e.g. "<Offhand Ghost Detected> totem held for 150ms (3 ticks) [19.8 TPS, 42ms ping]"
+     * @param timed whether to include the hold time (only meaningful for short holds)
+     */
+    public static String ghostReport(String handType, boolean timed, long durationMillis, long ticksHeld) {
+        StringBuilder out = reset();
+        out.append(GHOST_PREFIX[DetectionJournal.hand(handType)]);
+        if (timed) {
+            out.append(" totem held for ").append(durationMillis).append("ms (").append(ticksHeld).append(" ticks)");
+        }
+        out.append(" [");
+        ServerTiming.appendTo(out).append(']');
+        return out.toString();
+    }
+
+    /**
+     * The clipboard-mode alert as one multi-line chat component
+     */
+    public static Text ghostAlert(String command, String handType, long durationMillis, long ticksHeld) {
+        StringBuilder out = reset();
+        // Client ticks (fixed 20 Hz) with their expectation, and the hold in server ticks at the measured TPS
+        out.append(durationMillis).append("ms (").append(ticksHeld).append(" client ticks, expected ")
+            .append(ticksHeld * 50).append("ms; ")
+            .append(Math.round(ServerTiming.serverTicks(durationMillis) * 10) / 10.0).append(" server ticks)");
+        Text duration = Text.literal(out.toString()).formatted(Formatting.WHITE);
+        Text server = Text.literal(ServerTiming.appendTo(reset()).toString()).formatted(Formatting.WHITE);
+
+        MutableText alert = Text.empty();
+        alert.append(BANNER).append(NEWLINE)
+            .append(TITLE).append(NEWLINE)
+            .append(BANNER).append(NEWLINE)
+            .append(HAND_LABEL).append(hand(handType)).append(NEWLINE)
+            .append(DURATION_LABEL).append(duration).append(NEWLINE)
+            .append(SERVER_LABEL).append(server).append(NEWLINE)
+            .append(BANNER).append(NEWLINE)
+            .append(COPIED).append(NEWLINE)
+            .append(PASTE_HINT).append(NEWLINE)
+            .append(Text.literal(command).formatted(Formatting.GRAY)).append(NEWLINE)
+            .append(BANNER);
+        return alert;
+    }
+
+    private static Text hand(String handType) {
+        return switch (DetectionJournal.hand(handType)) {
+            case DetectionJournal.HAND_MAIN -> MAIN_HAND;
+            case DetectionJournal.HAND_OFF -> OFF_HAND;
+            default -> UNKNOWN_HAND;
+        };
+    }
+
+    private static StringBuilder reset() {
+        scratch.setLength(0);
+        return scratch;
+    }
+}
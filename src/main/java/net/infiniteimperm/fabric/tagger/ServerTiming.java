@@ -0,0 +1,157 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.network.PlayerListEntry;
+
+/**
+ * Live estimates of the server's tick rate and our round-trip latency, attached to ghost reports
+ * and journal records so a "ghost" during server lag can be told apart from a real one.
+ *
+ * TPS: the server sends a world-time update every 20 of its ticks; over a rolling window of the
+ * last WINDOW updates, world ticks advanced divided by arrival time elapsed (stamped on the Netty
+ * thread) is the server tick rate. Ping: the server-measured keep-alive latency from our tab-list
+ * entry, sampled once a second on the TickScheduler and averaged over the last PING_WINDOW samples.
+ */
+public final class ServerTiming {
+
+    public static final float NOMINAL_TPS = 20.0f;
+    private static final int WINDOW = 16; // World-time updates (~16 s at 20 TPS)
+    private static final int PING_WINDOW = 8; // One sample per second
+    private static final long MAX_GAP_NANOS = 10_000_000_000L; // Longer gaps (world change, freeze) restart the window
+
+    // World-time ring, written on the Netty thread
+    private static final long[] worldTicks = new long[WINDOW];
+    private static final long[] arrivalNanos = new long[WINDOW];
+    private static int head = 0;
+    private static int samples = 0;
+    private static volatile float tps = NOMINAL_TPS;
+
+    // Ping ring, client thread
+    private static final int[] pings = new int[PING_WINDOW];
+    private static int pingHead = 0;
+    private static int pingSamples = 0;
+    private static int pingSum = 0;
+    private static volatile int pingMillis = -1; // -1 = unknown
+    private static TickScheduler.Timer pingSampler = null;
+
+    private ServerTiming() {
+    }
+
+    /**
+     * Called from PacketArrivalMixin on the Netty thread for every world-time update.
+     */
+    public static synchronized void onWorldTime(long worldTime, long arrivalNano) {
+        if (samples > 0) {
+            int last = (head - 1 + WINDOW) % WINDOW;
+            if (worldTime <= worldTicks[last] || arrivalNano - arrivalNanos[last] > MAX_GAP_NANOS) {
+                samples = 0; // Time went backwards or stalled: start over
+            }
+        }
+        worldTicks[head] = worldTime;
+        arrivalNanos[head] = arrivalNano;
+        head = (head + 1) % WINDOW;
+        if (samples < WINDOW) {
+            samples++;
+        }
+        if (samples >= 3) {
+            int oldest = (head - samples + WINDOW) % WINDOW;
+            int newest = (head - 1 + WINDOW) % WINDOW;
+            double seconds = (arrivalNanos[newest] - arrivalNanos[oldest]) / 1e9;
+            if (seconds > 0) {
+                // Network jitter can make a window look slightly faster than real time
+                tps = (float) Math.min(NOMINAL_TPS, (worldTicks[newest] - worldTicks[oldest]) / seconds);
+            }
+        }
+    }
+
+    /**
+     * Connected to a server: start from nominal values and begin sampling ping.
+     */
+    public static void onJoin() {
+        synchronized (ServerTiming.class) {
+            samples = 0;
+            head = 0;
+            tps = NOMINAL_TPS;
+        }
+        pingHead = 0;
+        pingSamples = 0;
+        pingSum = 0;
+        pingMillis = -1;
+        if (pingSampler != null) {
+            pingSampler.cancel();
+        }
+        pingSampler = TickScheduler.schedule(1000, ServerTiming::samplePing);
+    }
+
+    public static void onDisconnect() {
+        if (pingSampler != null) {
+            pingSampler.cancel();
+            pingSampler = null;
+        }
+    }
+
+    private static void samplePing() {
+        pingSampler = TickScheduler.schedule(1000, ServerTiming::samplePing);
+        MinecraftClient client = MinecraftClient.getInstance();
+        ClientPlayNetworkHandler handler = client.getNetworkHandler();
+        if (client.player == null || handler == null) {
+            return;
+        }
+        PlayerListEntry entry = handler.getPlayerListEntry(client.player.getUuid());
+        if (entry == null || entry.getLatency() <= 0) {
+            return; // Not reported yet
+        }
+        if (pingSamples == PING_WINDOW) {
+            pingSum -= pings[pingHead];
+        } else {
+            pingSamples++;
+        }
+        pings[pingHead] = entry.getLatency();
+        pingSum += entry.getLatency();
+        pingHead = (pingHead + 1) % PING_WINDOW;
+        pingMillis = pingSum / pingSamples;
+    }
+
+    public static float getTps() {
+        return tps;
+    }
+
+    public static int getPingMillis() {
+        return pingMillis;
+    }
+
+    /**
+     * How long the given number of server ticks takes at the current tick rate.
+     */
+    public static double expectedMillis(long ticks) {
+        float current = tps;
+        return ticks * 1000.0 / (current > 0.5f ? current : NOMINAL_TPS);
+    }
+
+    /**
+     * How many server ticks the given wall-clock time spans at the current tick rate, e.g. to put
+     * a measured hold next to the client-tick count (client ticks stay at 20 Hz when the server lags).
+     */
+    public static double serverTicks(long millis) {
+        float current = tps;
+        return millis * (current > 0.5f ? current : NOMINAL_TPS) / 1000.0;
+    }
+
+    /**
+     * e.g. "19.8 TPS, 45ms ping" (ping omitted while unknown)
+     */
+    public static String describe() {
+        return appendTo(new StringBuilder(24)).toString();
+    }
+
+    // Appends the describe() text to a report being built, e.g. "19.8 TPS, 42ms ping"
+    public static StringBuilder appendTo(StringBuilder out) {
+        int ping = pingMillis;
+        out.append(Math.round(tps * 10) / 10.0).append(" TPS");
+        if (ping >= 0) {
+            out.append(", ").append(ping).append("ms ping");
+        }
+        return out;
+    }
+}
@@ -1,13 +1,16 @@
 package net.infiniteimperm.fabric.tagger;
 
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientEntityEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.message.v1.ClientReceiveMessageEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
-import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Text;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -21,30 +24,73 @@ public class TaggerMod implements ClientModInitializer {
     public void onInitializeClient() {
         LOGGER.info("Ghost Detector Mod initialized");
 
+        // Start of the client tick, for the scheduler's deferral budget
+        ClientTickEvents.START_CLIENT_TICK.register(client -> TickScheduler.markTickStart());
+
         // Register the tick event for various trackers
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
-            QueueDurabilityChecker.resetConfirmation(); // Reset confirmation timeout
+            long perfStart = PerfTimers.start();
+            // No event object at all unless a recording enabled it
+            JfrEvents.DetectorTick jfrTick = JfrEvents.detectorTickEnabled() ? new JfrEvents.DetectorTick() : null;
+            if (jfrTick != null) {
+                jfrTick.begin();
+            }
+            TickScheduler.tick(); // Run due timers (reminders, confirmation timeout, kit effects)
+            ChatPipeline.drain(); // Deliver chat events classified since the last tick, in arrival order
+            PlayerIndex.tick(); // Re-bucket players that moved across grid cells
             GhostTotemDetector.tick(client);
-            KitDetector.tick(); // Add KitDetector tick
+            PerfTimers.stop(PerfTimers.TICK, perfStart);
+            if (jfrTick != null && jfrTick.shouldCommit()) {
+                jfrTick.eventDriven = GhostTotemDetector.isEventDrivenModeEnabled();
+                jfrTick.commit();
+            }
+        });
+        
+        // Entity status codes the detectors listen for
+        EntityStatusDispatch.register(EntityStatusDispatch.TOTEM_POP, GhostTotemDetector::onTotemPopStatus);
+        PopCounter.register();
+        OpponentGhostTracker.register();
+        
+        // Keep the player index in sync with the client world
+        ClientEntityEvents.ENTITY_LOAD.register((entity, world) -> PlayerIndex.onEntityLoad(entity));
+        ClientEntityEvents.ENTITY_UNLOAD.register((entity, world) -> {
+            PlayerIndex.onEntityUnload(entity);
+            PopCounter.onEntityUnload(entity);
+            OpponentGhostTracker.onEntityUnload(entity);
         });
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            DetectionJournal.onJoin(client);
+            GhostStats.onJoin(client);
+            ServerTiming.onJoin();
+            PopCounter.clear();
+        });
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
+            PlayerIndex.clear();
+            ChatPipeline.clear();
+            KitEffectRenderer.clear();
+            ServerTiming.onDisconnect();
+            OutboundChatQueue.clear();
+            PopCounter.clear();
+            OpponentGhostTracker.clear();
+        });
+        
+        // Write out any queued detector log records before the game exits
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> DetectorLog.flush());
         
         // Register event for processing chat messages
         ClientReceiveMessageEvents.GAME.register((message, overlay) -> {
-            // Convert message to string and process through detectors
-            String messageStr = message.getString();
-            
-            KitDetector.onChatMessage(messageStr); // Add kit detection
-            GhostTotemDetector.onChatMessage(messageStr); // Detect player death via chat
+            // Classified off-thread (or inline if async chat is off); events are delivered on the next tick
+            long perfStart = PerfTimers.start();
+            ChatPipeline.onGameMessage(message);
+            PerfTimers.stop(PerfTimers.CHAT, perfStart);
         });
 
         // Register HUD render callback for Totem Warning Overlay (in-game view)
         HudRenderCallback.EVENT.register((drawContext, renderTickCounter) -> {
-            // Check condition and render directly here, avoid calling overlay class method
-            if (TotemWarningOverlay.shouldShowWarning()) {
-                int screenWidth = MinecraftClient.getInstance().getWindow().getScaledWidth();
-                int screenHeight = MinecraftClient.getInstance().getWindow().getScaledHeight();
-                drawContext.fill(0, 0, screenWidth, screenHeight, 0x40FF0000); // Draw overlay directly
-            }
+            // Reads the per-tick player snapshot only; the inventory is never scanned per frame
+            long perfStart = PerfTimers.start();
+            TotemWarningOverlay.render(drawContext, renderTickCounter);
+            PerfTimers.stop(PerfTimers.HUD, perfStart);
         });
         
         // Register the /gd commands
@@ -62,11 +108,109 @@ public class TaggerMod implements ClientModInitializer {
                         return 1;
                     })
                 )
+                .then(ClientCommandManager.literal("events")
+                    .executes(context -> {
+                        GhostTotemDetector.toggleEventDrivenMode();
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("totemcount")
+                    .executes(context -> {
+                        TotemWarningOverlay.toggleTotemCount();
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("pops")
+                    .then(ClientCommandManager.literal("nametags")
+                        .executes(context -> {
+                            PopCounter.toggleNametags();
+                            return 1;
+                        })
+                    )
+                    .executes(context -> {
+                        PopCounter.show(context.getSource());
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("history")
+                    .then(ClientCommandManager.argument("page", IntegerArgumentType.integer(1))
+                        .executes(context -> {
+                            DetectionJournal.showHistory(context.getSource(), IntegerArgumentType.getInteger(context, "page"));
+                            return 1;
+                        })
+                    )
+                    .executes(context -> {
+                        DetectionJournal.showHistory(context.getSource(), 1);
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("stats")
+                    .executes(context -> {
+                        GhostStats.show(context.getSource());
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("export")
+                    .executes(context -> {
+                        FabricClientCommandSource source = context.getSource();
+                        DetectionJournal.export(file -> source.getClient().execute(() -> source.sendFeedback(Text.literal(file != null
+                            ? "§a[Ghost Detector] Journal exported to " + file.getFileName()
+                            : "§c[Ghost Detector] Journal export failed (see log)"))));
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("perf")
+                    .then(ClientCommandManager.literal("on")
+                        .executes(context -> {
+                            PerfTimers.setEnabled(true);
+                            return 1;
+                        })
+                    )
+                    .then(ClientCommandManager.literal("off")
+                        .executes(context -> {
+                            PerfTimers.setEnabled(false);
+                            return 1;
+                        })
+                    )
+                    .then(ClientCommandManager.literal("reset")
+                        .executes(context -> {
+                            PerfTimers.reset();
+                            context.getSource().sendFeedback(Text.literal("§a[Ghost Detector] Performance timers reset"));
+                            return 1;
+                        })
+                    )
+                    .executes(context -> {
+                        PerfTimers.show(context.getSource());
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("asyncchat")
+                    .executes(context -> {
+                        ChatPipeline.toggleAsyncMode();
+                        return 1;
+                    })
+                )
+                .then(ClientCommandManager.literal("asynclog")
+                    .executes(context -> {
+                        DetectorLog.toggleAsyncMode();
+                        return 1;
+                    })
+                )
                 .executes(context -> {
                     context.getSource().sendFeedback(Text.literal(
                         "§6Ghost Detector Commands:\n" +
                         "§e/gd macro §7- Toggle chat macro mode (check your server's rules!)\n" +
-                        "§e/gd clipboard §7- Toggle clipboard mode (copy to clipboard)"
+                        "§e/gd clipboard §7- Toggle clipboard mode (copy to clipboard)\n" +
+                        "§e/gd events §7- Toggle packet-driven totem tracking (vs per-tick polling)\n" +
+                        "§e/gd totemcount §7- Toggle the remaining totem counter next to the crosshair\n" +
+                        "§e/gd asynclog §7- Toggle background-thread logging for detector events\n" +
+                        "§e/gd asyncchat §7- Toggle off-thread chat classification\n" +
+                        "§e/gd history [page] §7- Show recorded detections, newest first\n" +
+                        "§e/gd export §7- Export the detection journal to CSV\n" +
+                        "§e/gd stats §7- Show ghost timing percentiles for this server\n" +
+                        "§e/gd pops §7- Show totem pops per opponent since their last death\n" +
+                        "§e/gd pops nametags §7- Toggle pop counts after player nametags\n" +
+                        "§e/gd perf [on|off|reset] §7- Show or toggle per-hook timing of the mod"
                     ));
                     return 1;
                 })
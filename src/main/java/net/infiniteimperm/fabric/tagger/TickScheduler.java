@@ -0,0 +1,188 @@
+package net.infiniteimperm.fabric.tagger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared hashed timing wheel for delayed work, advanced once per client tick from TaggerMod.
+ * Subsystems schedule a deadline instead of polling the clock every tick, so adding a timed
+ * feature never adds another per-tick check. Schedule and cancel are O(1): timers sit in an
+ * intrusive doubly-linked list in the bucket of their deadline tick, and delays longer than one
+ * revolution simply stay in their bucket until their deadline tick comes round.
+ *
+ * Deferrable timers are cosmetic/non-urgent work: once the client tick has run for more than
+ * TICK_BUDGET_NANOS since it started (world and entity ticking included, see markTickStart),
+ * remaining deferrable timers are pushed to the next tick instead of running. A timer is pushed
+ * back at most MAX_DEFERRALS ticks in a row and then runs regardless, so a client whose tick is
+ * always over budget (large lobby) delays cosmetic work but never starves it.
+ * Client thread only.
+ */
+public final class TickScheduler {
+
+    public static final long TICK_MILLIS = 50;
+    private static final int WHEEL_SIZE = 256; // Power of two, 12.8 s per revolution
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final long TICK_BUDGET_NANOS = 5_000_000; // Of a ~16 ms frame at 60 fps
+    private static final int MAX_DEFERRALS = 4; // 200 ms late at most
+
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int DUE = 2;
+
+    private static final Timer[] buckets = new Timer[WHEEL_SIZE];
+    private static final List<Timer> due = new ArrayList<>();
+    private static long currentTick = 0;
+    private static int scheduledCount = 0;
+    private static long deferredCount = 0;
+    private static long tickStartNanos = 0; // Set from START_CLIENT_TICK
+
+    private TickScheduler() {
+    }
+
+    /**
+     * Handle for a scheduled task, used to cancel it.
+     */
+    public static final class Timer {
+        private final Runnable task;
+        private final boolean deferrable;
+        private long deadlineTick;
+        private int deferrals; // Consecutive ticks pushed back
+        private int state = IDLE;
+        private Timer prev;
+        private Timer next;
+
+        private Timer(Runnable task, boolean deferrable) {
+            this.task = task;
+            this.deferrable = deferrable;
+        }
+
+        /**
+         * @return true if the task was still pending and will now not run
+         */
+        public boolean cancel() {
+            if (state == SCHEDULED) {
+                unlink(this);
+                return true;
+            }
+            if (state == DUE) {
+                // Picked for this tick but not run yet (cancelled by an earlier task)
+                state = IDLE;
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isPending() {
+            return state != IDLE;
+        }
+    }
+
+    /**
+     * Run a task once after at least delayMillis (rounded up to whole ticks, minimum one tick).
+     */
+    public static Timer schedule(long delayMillis, Runnable task) {
+        return insert(new Timer(task, false), ticksFor(delayMillis));
+    }
+
+    /**
+     * Like {@link #schedule}, but the task may be pushed back a tick when the per-tick budget is spent.
+     */
+    public static Timer scheduleDeferrable(long delayMillis, Runnable task) {
+        return insert(new Timer(task, true), ticksFor(delayMillis));
+    }
+
+    /**
+     * Called from START_CLIENT_TICK: the deferral budget covers the whole client tick, not just
+     * the wheel's own tasks.
+     */
+    public static void markTickStart() {
+        tickStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Advance the wheel by one tick and run everything that is due.
+     */
+    public static void tick() {
+        currentTick++;
+        Timer timer = buckets[(int) (currentTick & WHEEL_MASK)];
+        if (timer == null) {
+            return;
+        }
+
+        // Detach the due timers first: tasks may schedule or cancel timers in this same bucket
+        while (timer != null) {
+            Timer next = timer.next;
+            if (timer.deadlineTick <= currentTick) {
+                unlink(timer);
+                timer.state = DUE;
+                due.add(timer);
+            }
+            timer = next;
+        }
+
+        long start = tickStartNanos != 0 ? tickStartNanos : System.nanoTime();
+        for (int i = 0; i < due.size(); i++) {
+            Timer dueTimer = due.get(i);
+            if (dueTimer.state != DUE) {
+                continue; // Cancelled by an earlier task
+            }
+            if (dueTimer.deferrable && dueTimer.deferrals < MAX_DEFERRALS && System.nanoTime() - start > TICK_BUDGET_NANOS) {
+                dueTimer.deferrals++;
+                deferredCount++;
+                insert(dueTimer, 1);
+                continue;
+            }
+            dueTimer.deferrals = 0;
+            dueTimer.state = IDLE;
+            try {
+                dueTimer.task.run();
+            } catch (RuntimeException e) {
+                DetectorLog.error("[Scheduler] Scheduled task failed: {}", e.toString());
+            }
+        }
+        due.clear();
+    }
+
+    public static int size() {
+        return scheduledCount;
+    }
+
+    // How many deferrable tasks were pushed back because the tick budget was spent
+    public static long getDeferredCount() {
+        return deferredCount;
+    }
+
+    private static long ticksFor(long delayMillis) {
+        return Math.max(1, (delayMillis + TICK_MILLIS - 1) / TICK_MILLIS);
+    }
+
+    private static Timer insert(Timer timer, long ticks) {
+        timer.deadlineTick = currentTick + ticks;
+        int index = (int) (timer.deadlineTick & WHEEL_MASK);
+        Timer head = buckets[index];
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        buckets[index] = timer;
+        timer.state = SCHEDULED;
+        scheduledCount++;
+        return timer;
+    }
+
+    private static void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            buckets[(int) (timer.deadlineTick & WHEEL_MASK)] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.state = IDLE;
+        scheduledCount--;
+    }
+}
@@ -2,64 +2,67 @@ package net.infiniteimperm.fabric.tagger;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
-import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.RenderTickCounter;
-import net.minecraft.item.ItemStack;
-import net.minecraft.item.Items;
+import net.minecraft.text.Text;
 
 public class TotemWarningOverlay {
 
     private static final MinecraftClient client = MinecraftClient.getInstance();
     private static final int OVERLAY_COLOR = 0x40FF0000; // Semi-transparent red (ARGB)
+    private static final int COUNT_COLOR = 0xFFFFD700; // Gold
+
+    // Rebuilt only when the count changes so the per-frame path does not allocate
+    private static Text totemCountText = Text.literal("Totems: 0");
+    private static int totemCountTextValue = 0;
+
+    private static boolean showTotemCount = false;
 
     /**
      * Checks if the player should see the totem warning.
      * @return true if the player is not holding a totem but has one in inventory, false otherwise.
      */
     public static boolean shouldShowWarning() {
-        if (client.player == null) {
-            return false;
-        }
-        ClientPlayerEntity player = client.player;
-        boolean isHoldingTotem = false;
-        boolean hasTotemInInventory = false;
-
-        // Check main hand and offhand
-        ItemStack mainHandStack = player.getMainHandStack();
-        ItemStack offHandStack = player.getOffHandStack();
+        // One field read: the snapshot is captured per tick and on inventory packets
+        return PlayerSnapshot.current().shouldWarn();
+    }
 
-        if (mainHandStack.getItem() == Items.TOTEM_OF_UNDYING || offHandStack.getItem() == Items.TOTEM_OF_UNDYING) {
-            isHoldingTotem = true;
+    // Toggle the remaining-totem counter next to the crosshair
+    public static void toggleTotemCount() {
+        showTotemCount = !showTotemCount;
+        if (client.player != null) {
+            String statusMessage = showTotemCount ?
+                "§a[Ghost Detector] Totem counter ENABLED" :
+                "§c[Ghost Detector] Totem counter DISABLED";
+            client.player.sendMessage(Text.literal(statusMessage), false);
         }
-
-        // Check main inventory 
-        for (int i = 0; i < player.getInventory().main.size(); i++) {
-            // Skip checking the main hand slot if it contains a totem (already checked above)
-            if (mainHandStack.getItem() == Items.TOTEM_OF_UNDYING && i == player.getInventory().selectedSlot) {
-                 continue; 
-            }
-            ItemStack stack = player.getInventory().main.get(i);
-            if (stack.getItem() == Items.TOTEM_OF_UNDYING) {
-                hasTotemInInventory = true;
-                break; // Found one, no need to check further
-            }
-        }
-        
-        return !isHoldingTotem && hasTotemInInventory;
+        DetectorLog.info("[Overlay] Totem counter toggled to: {}", showTotemCount);
     }
 
     /**
-     * Renders the overlay if the warning condition is met.
-     * Called by HudRenderCallback and ScreenEvents.AFTER_RENDER.
+     * Renders the overlay if the warning condition is met, plus the totem counter when enabled.
+     * Called by HudRenderCallback every frame; only reads the player snapshot.
      */
     public static void render(DrawContext drawContext, RenderTickCounter renderTickCounter) { 
-        if (shouldShowWarning()) {
-             int screenWidth = client.getWindow().getScaledWidth();
-             int screenHeight = client.getWindow().getScaledHeight();
-            
-             // Draw the overlay
-             drawContext.fill(0, 0, screenWidth, screenHeight, OVERLAY_COLOR);
+        PlayerSnapshot snapshot = PlayerSnapshot.current();
+        boolean warning = snapshot.shouldWarn();
+        if (!warning && !showTotemCount) {
+            return;
+        }
+        int screenWidth = client.getWindow().getScaledWidth();
+        int screenHeight = client.getWindow().getScaledHeight();
+
+        if (warning) {
+            // Draw the overlay
+            drawContext.fill(0, 0, screenWidth, screenHeight, OVERLAY_COLOR);
+        }
+        if (showTotemCount && snapshot.isValid()) {
+            int count = snapshot.getTotemCount();
+            if (count != totemCountTextValue) {
+                totemCountText = Text.literal("Totems: " + count);
+                totemCountTextValue = count;
+            }
+            drawContext.drawTextWithShadow(client.textRenderer, totemCountText, screenWidth / 2 + 10, screenHeight / 2 - 4, COUNT_COLOR);
         }
     }
-} 
\ No newline at end of file
+}
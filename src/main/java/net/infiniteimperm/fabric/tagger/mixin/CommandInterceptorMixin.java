@@ -1,7 +1,8 @@
 package net.infiniteimperm.fabric.tagger.mixin;
 
+import net.infiniteimperm.fabric.tagger.CommandRules;
+import net.infiniteimperm.fabric.tagger.PerfTimers;
 import net.infiniteimperm.fabric.tagger.QueueDurabilityChecker;
-import net.infiniteimperm.fabric.tagger.TaggerMod;
 import net.minecraft.client.network.ClientPlayNetworkHandler;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -13,18 +14,12 @@ public class CommandInterceptorMixin {
     
     @Inject(method = "sendChatCommand", at = @At("HEAD"), cancellable = true)
     private void interceptCommand(String command, CallbackInfo ci) {
-        // Check if this is a queue command
-        if (QueueDurabilityChecker.isQueueCommand(command)) {
-            TaggerMod.LOGGER.info("[CommandInterceptor] Intercepted queue command: /{}", command);
-            
-            // Check armor durability and potentially block the command
-            if (QueueDurabilityChecker.processQueueCommand(command)) {
-                TaggerMod.LOGGER.info("[CommandInterceptor] Blocking queue command due to damaged armor");
-                ci.cancel(); // Block the command from being sent
-            } else {
-                TaggerMod.LOGGER.info("[CommandInterceptor] Allowing queue command to proceed");
-                // Command will proceed normally
-            }
+        long perfStart = PerfTimers.start();
+        // Constant-time trie lookup; commands that are not gated return here
+        CommandRules.Rule rule = CommandRules.match(command);
+        if (rule != null && QueueDurabilityChecker.processGatedCommand(command, rule)) {
+            ci.cancel(); // Block the command from being sent
         }
+        PerfTimers.stop(PerfTimers.COMMAND_MIXIN, perfStart);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package net.infiniteimperm.fabric.tagger.mixin;
+
+import net.infiniteimperm.fabric.tagger.PopCounter;
+import net.minecraft.client.render.entity.EntityRenderer;
+import net.minecraft.client.render.entity.state.EntityRenderState;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Appends the PopCounter count to player nametags when enabled (/gd pops nametags).
+ * PopCounter caches the decorated name per entity, so nothing is built per frame.
+ */
+@Mixin(EntityRenderer.class)
+public abstract class EntityRendererMixin {
+
+    @Inject(method = "updateRenderState", at = @At("TAIL"))
+    private void tagger$appendPopCount(Entity entity, EntityRenderState state, float tickDelta, CallbackInfo ci) {
+        if (state.displayName == null || !(entity instanceof PlayerEntity)) {
+            return;
+        }
+        state.displayName = PopCounter.decorateNametag(entity.getId(), state.displayName);
+    }
+}
@@ -0,0 +1,16 @@
+package net.infiniteimperm.fabric.tagger.mixin;
+
+import net.minecraft.network.packet.s2c.play.EntityStatusS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Exposes the raw entity id so status packets can be filtered on the Netty thread
+ * without resolving the entity against the world.
+ */
+@Mixin(EntityStatusS2CPacket.class)
+public interface EntityStatusS2CPacketAccessor {
+
+    @Accessor("entityId")
+    int tagger$getEntityId();
+}
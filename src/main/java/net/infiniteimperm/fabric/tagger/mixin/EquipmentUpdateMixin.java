@@ -0,0 +1,31 @@
+package net.infiniteimperm.fabric.tagger.mixin;
+
+import net.infiniteimperm.fabric.tagger.OpponentGhostTracker;
+import net.infiniteimperm.fabric.tagger.PacketTimestamps;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.EntityEquipmentUpdateS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Feeds the hand equipment of other entities to OpponentGhostTracker, with the packet's arrival
+ * stamped on the Netty thread so hold times are not quantised to client ticks.
+ * TAIL only runs on the client thread (the Netty pass is cut short by forceMainThread).
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class EquipmentUpdateMixin {
+
+    @Inject(method = "onEntityEquipmentUpdate", at = @At("HEAD"))
+    private void tagger$stampEquipmentUpdate(EntityEquipmentUpdateS2CPacket packet, CallbackInfo ci) {
+        if (PacketTimestamps.isNetworkThread()) {
+            PacketTimestamps.stamp(packet);
+        }
+    }
+
+    @Inject(method = "onEntityEquipmentUpdate", at = @At("TAIL"))
+    private void tagger$onEquipmentUpdate(EntityEquipmentUpdateS2CPacket packet, CallbackInfo ci) {
+        OpponentGhostTracker.onEquipmentUpdate(packet.getId(), packet.getEquipmentList(), PacketTimestamps.arrivalOf(packet));
+    }
+}
@@ -0,0 +1,23 @@
+package net.infiniteimperm.fabric.tagger.mixin;
+
+import net.infiniteimperm.fabric.tagger.GhostTotemDetector;
+import net.minecraft.client.network.ClientPlayerInteractionManager;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.screen.slot.SlotActionType;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Local inventory clicks (e.g. moving a totem into the offhand) are predicted client-side and
+ * the server does not always echo a slot update, so notify GhostTotemDetector after the click too.
+ */
+@Mixin(ClientPlayerInteractionManager.class)
+public abstract class InventoryClickMixin {
+
+    @Inject(method = "clickSlot", at = @At("TAIL"))
+    private void tagger$onClickSlot(int syncId, int slotId, int button, SlotActionType actionType, PlayerEntity player, CallbackInfo ci) {
+        GhostTotemDetector.onInventoryChanged(System.nanoTime());
+    }
+}
@@ -0,0 +1,43 @@
+package net.infiniteimperm.fabric.tagger.mixin;
+
+import net.infiniteimperm.fabric.tagger.GhostTotemDetector;
+import net.infiniteimperm.fabric.tagger.PacketTimestamps;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.InventoryS2CPacket;
+import net.minecraft.network.packet.s2c.play.ScreenHandlerSlotUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.SetPlayerInventoryS2CPacket;
+import net.minecraft.network.packet.s2c.play.UpdateSelectedSlotS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Drives GhostTotemDetector's totem equip/unequip tracking from the inventory packets the
+ * server sends, instead of waiting for the next client tick to poll the hands.
+ * TAIL injections only run on the client thread, after the packet has been applied; the
+ * equip/unequip time is the packet's network arrival time stamped by PacketArrivalMixin.
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class InventoryPacketMixin {
+
+    @Inject(method = "onScreenHandlerSlotUpdate", at = @At("TAIL"))
+    private void tagger$onSlotUpdate(ScreenHandlerSlotUpdateS2CPacket packet, CallbackInfo ci) {
+        GhostTotemDetector.onInventoryChanged(PacketTimestamps.arrivalOf(packet));
+    }
+
+    @Inject(method = "onInventory", at = @At("TAIL"))
+    private void tagger$onInventory(InventoryS2CPacket packet, CallbackInfo ci) {
+        GhostTotemDetector.onInventoryChanged(PacketTimestamps.arrivalOf(packet));
+    }
+
+    @Inject(method = "onSetPlayerInventory", at = @At("TAIL"))
+    private void tagger$onSetPlayerInventory(SetPlayerInventoryS2CPacket packet, CallbackInfo ci) {
+        GhostTotemDetector.onInventoryChanged(PacketTimestamps.arrivalOf(packet));
+    }
+
+    @Inject(method = "onUpdateSelectedSlot", at = @At("TAIL"))
+    private void tagger$onUpdateSelectedSlot(UpdateSelectedSlotS2CPacket packet, CallbackInfo ci) {
+        GhostTotemDetector.onInventoryChanged(System.nanoTime());
+    }
+}
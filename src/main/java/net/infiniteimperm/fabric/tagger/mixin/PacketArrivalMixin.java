@@ -0,0 +1,80 @@
+package net.infiniteimperm.fabric.tagger.mixin;
+
+import net.infiniteimperm.fabric.tagger.GhostTotemDetector;
+import net.infiniteimperm.fabric.tagger.PacketTimestamps;
+import net.infiniteimperm.fabric.tagger.ServerTiming;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.network.packet.s2c.play.GameStateChangeS2CPacket;
+import net.minecraft.network.packet.s2c.play.HealthUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.InventoryS2CPacket;
+import net.minecraft.network.packet.s2c.play.ScreenHandlerSlotUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.SetPlayerInventoryS2CPacket;
+import net.minecraft.network.packet.s2c.play.WorldTimeUpdateS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Stamps the arrival time of health, game-mode and slot packets, feeds world-time updates
+ * (with their arrival time) to ServerTiming for the TPS estimate, and passes applied health
+ * updates to GhostTotemDetector as a death signal.
+ * Every handler first runs on the Netty thread, where forceMainThread re-schedules it onto the
+ * client thread; the HEAD injection sees both passes and only records on the first one.
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class PacketArrivalMixin {
+
+    @Inject(method = "onHealthUpdate", at = @At("HEAD"))
+    private void tagger$stampHealth(HealthUpdateS2CPacket packet, CallbackInfo ci) {
+        if (PacketTimestamps.isNetworkThread()) {
+            PacketTimestamps.HEALTH.record(PacketTimestamps.stamp(packet));
+        }
+    }
+
+    @Inject(method = "onHealthUpdate", at = @At("TAIL"))
+    private void tagger$onHealthUpdate(HealthUpdateS2CPacket packet, CallbackInfo ci) {
+        // TAIL only runs on the client thread, after the player's health was updated
+        ClientPlayerEntity player = MinecraftClient.getInstance().player;
+        if (player != null) {
+            GhostTotemDetector.onPlayerHealthUpdate(player, packet.getHealth(), PacketTimestamps.arrivalOf(packet));
+        }
+    }
+
+    @Inject(method = "onGameStateChange", at = @At("HEAD"))
+    private void tagger$stampGameMode(GameStateChangeS2CPacket packet, CallbackInfo ci) {
+        if (packet.getReason() == GameStateChangeS2CPacket.GAME_MODE_CHANGED && PacketTimestamps.isNetworkThread()) {
+            PacketTimestamps.GAME_MODE.record(PacketTimestamps.stamp(packet));
+        }
+    }
+
+    @Inject(method = "onScreenHandlerSlotUpdate", at = @At("HEAD"))
+    private void tagger$stampSlotUpdate(ScreenHandlerSlotUpdateS2CPacket packet, CallbackInfo ci) {
+        if (PacketTimestamps.isNetworkThread()) {
+            PacketTimestamps.stamp(packet);
+        }
+    }
+
+    @Inject(method = "onInventory", at = @At("HEAD"))
+    private void tagger$stampInventory(InventoryS2CPacket packet, CallbackInfo ci) {
+        if (PacketTimestamps.isNetworkThread()) {
+            PacketTimestamps.stamp(packet);
+        }
+    }
+
+    @Inject(method = "onSetPlayerInventory", at = @At("HEAD"))
+    private void tagger$stampSetPlayerInventory(SetPlayerInventoryS2CPacket packet, CallbackInfo ci) {
+        if (PacketTimestamps.isNetworkThread()) {
+            PacketTimestamps.stamp(packet);
+        }
+    }
+
+    @Inject(method = "onWorldTimeUpdate", at = @At("HEAD"))
+    private void tagger$stampWorldTime(WorldTimeUpdateS2CPacket packet, CallbackInfo ci) {
+        if (PacketTimestamps.isNetworkThread()) {
+            ServerTiming.onWorldTime(packet.time(), System.nanoTime());
+        }
+    }
+}
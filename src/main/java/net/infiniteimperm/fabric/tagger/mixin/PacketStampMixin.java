@@ -0,0 +1,42 @@
+package net.infiniteimperm.fabric.tagger.mixin;
+
+import net.infiniteimperm.fabric.tagger.ArrivalStamped;
+import net.minecraft.network.packet.s2c.play.EntityEquipmentUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityStatusS2CPacket;
+import net.minecraft.network.packet.s2c.play.GameStateChangeS2CPacket;
+import net.minecraft.network.packet.s2c.play.HealthUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.InventoryS2CPacket;
+import net.minecraft.network.packet.s2c.play.ScreenHandlerSlotUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.SetPlayerInventoryS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+/**
+ * Adds an arrival timestamp field to the packets the detectors time against (see PacketTimestamps).
+ * Written once on the Netty thread, read on the client thread after the handler was re-scheduled
+ * there (the executor hand-off publishes it).
+ */
+@Mixin({
+    HealthUpdateS2CPacket.class,
+    GameStateChangeS2CPacket.class,
+    EntityStatusS2CPacket.class,
+    EntityEquipmentUpdateS2CPacket.class,
+    ScreenHandlerSlotUpdateS2CPacket.class,
+    InventoryS2CPacket.class,
+    SetPlayerInventoryS2CPacket.class
+})
+public abstract class PacketStampMixin implements ArrivalStamped {
+
+    @Unique
+    private long tagger$arrivalNanos;
+
+    @Override
+    public long tagger$getArrivalNanos() {
+        return tagger$arrivalNanos;
+    }
+
+    @Override
+    public void tagger$setArrivalNanos(long nanos) {
+        tagger$arrivalNanos = nanos;
+    }
+}
@@ -0,0 +1,460 @@
+package net.infiniteimperm.fabric.tagger;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.GameMode;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic headless replay of recorded fights through GhostTotemDetector on a plain JVM.
+ * Each fight is a stream of tick snapshots, inventory packets, totem pops and chat lines, fed to
+ * the detector on a virtual clock. Reports detections against the expected outcome plus the
+ * per-event processing cost, so threshold changes can be checked against real traces.
+ * Traces can also pin down command gating: each command line is matched against CommandRules and
+ * judged on the current snapshot, and any verdict other than the expected one is reported.
+ *
+ * Usage: ReplayHarness [--empty-slots N] [--pop-window-ms N] [--death-window-ms N]
+ *                      [--repeat N] [--verbose] trace-or-flight-dump...
+ *
+ * Trace files (*.trace) are line based, times in ms from the start of the fight, # for comments:
+ *   self Name                                    local player name (for death chat lines)
+ *   fight [label]                                start a new fight (detector state is reset)
+ *   expect ghost|none                            expected outcome of the current fight
+ *   tick T slot mainItem offItem health mode empty
+ *   inv T slot mainItem offItem empty            inventory packet applied between ticks
+ *   pop T                                        status 35 for the local player
+ *   chat T text...                               game chat line
+ *   armor T percent                              wear full netherite armor at the given durability
+ *   command T verdict text...                    outgoing command (no slash); verdict is "none" (not
+ *                                                gated) or rule:ready / rule:block, e.g. queue:block
+ * Items are registry ids ("totem_of_undying", "minecraft:obsidian") or "-" for empty; mode is a
+ * game mode name or "-".
+ *
+ * Flight recorder dumps (*.bin, see FlightRecorder) replay as one fight without an expectation.
+ */
+public class ReplayHarness {
+
+    private static final int INVENTORY_SIZE = 36;
+    private static final Item[] ARMOR_PIECES = {
+        Items.NETHERITE_BOOTS, Items.NETHERITE_LEGGINGS, Items.NETHERITE_CHESTPLATE, Items.NETHERITE_HELMET
+    };
+
+    private final PlayerInventory inventory;
+    private final ItemStack filler;
+    private final ChatClassifier classifier = new ChatClassifier();
+    private final boolean verbose;
+
+    private final List<Fight> fights = new ArrayList<>();
+    private Fight current;
+    private float health = 20.0f;
+    private int detectionsThisFight;
+    private int commandChecks;
+    private int commandMismatches;
+
+    // Per-event processing cost (real time, ns)
+    private final LogHistogram tickCost = new LogHistogram();
+    private final LogHistogram inventoryCost = new LogHistogram();
+    private final LogHistogram popCost = new LogHistogram();
+    private final LogHistogram chatCost = new LogHistogram();
+
+    private ReplayHarness(boolean verbose) {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        this.inventory = new PlayerInventory(null);
+        this.filler = new ItemStack(Items.COBBLESTONE, 64);
+        this.verbose = verbose;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int repeat = 1;
+        boolean verbose = false;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--empty-slots" -> GhostTotemDetector.inventoryClearEmptySlots = Integer.parseInt(args[++i]);
+                case "--pop-window-ms" -> GhostTotemDetector.popWindowMillis = Long.parseLong(args[++i]);
+                case "--death-window-ms" -> DeathCorrelator.windowMillis = Long.parseLong(args[++i]);
+                case "--repeat" -> repeat = Integer.parseInt(args[++i]);
+                case "--verbose" -> verbose = true;
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: ReplayHarness [--empty-slots N] [--pop-window-ms N] [--death-window-ms N] [--repeat N] [--verbose] trace-or-flight-dump...");
+            System.exit(2);
+        }
+
+        ReplayHarness harness = new ReplayHarness(verbose);
+        List<List<Event>> recorded = new ArrayList<>();
+        for (Path input : inputs) {
+            recorded.add(input.toString().endsWith(".bin") ? readFlightDump(input) : readTrace(input));
+        }
+
+        DetectorClock.useVirtual(System.currentTimeMillis());
+        GhostTotemDetector.setHeadless(null, (hand, millis, ticks, timed) -> harness.onGhost(hand, millis, ticks, timed));
+
+        long start = System.nanoTime();
+        for (int r = 0; r < repeat; r++) {
+            for (List<Event> events : recorded) {
+                harness.run(events, r == 0);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        harness.report(elapsed);
+    }
+
+    private void run(List<Event> events, boolean keepResults) {
+        long base = 0;
+        for (Event event : events) {
+            long now = base + event.timeMillis * 1_000_000L;
+            switch (event.kind) {
+                case SELF -> GhostTotemDetector.setHeadless(event.text, (hand, millis, ticks, timed) -> onGhost(hand, millis, ticks, timed));
+                case FIGHT -> {
+                    finishFight(keepResults);
+                    // Each fight starts well after the previous one so no time window leaks across
+                    base = DetectorClock.nanoTime() + 60_000_000_000L;
+                    DetectorClock.advanceTo(base);
+                    GhostTotemDetector.resetState();
+                    clearArmor();
+                    current = new Fight(event.text);
+                    detectionsThisFight = 0;
+                    health = 20.0f;
+                }
+                case EXPECT -> ensureFight().expectGhost = "ghost".equalsIgnoreCase(event.text);
+                case TICK -> {
+                    ensureFight();
+                    DetectorClock.advanceTo(now);
+                    applyInventory(event);
+                    health = event.health;
+                    long t0 = System.nanoTime();
+                    GhostTotemDetector.advanceGameTick();
+                    GhostTotemDetector.tickPlayer(null, inventory, 1, event.health, event.health <= 0, event.gameMode);
+                    tickCost.record(System.nanoTime() - t0);
+                }
+                case INVENTORY -> {
+                    ensureFight();
+                    DetectorClock.advanceTo(now);
+                    applyInventory(event);
+                    long t0 = System.nanoTime();
+                    GhostTotemDetector.applyInventoryChange(null, PlayerSnapshot.refreshInventory(inventory), health <= 0, now);
+                    inventoryCost.record(System.nanoTime() - t0);
+                }
+                case POP -> {
+                    ensureFight();
+                    DetectorClock.advanceTo(now);
+                    long t0 = System.nanoTime();
+                    GhostTotemDetector.onLocalPlayerTotemPop(now);
+                    popCost.record(System.nanoTime() - t0);
+                }
+                case CHAT -> {
+                    ensureFight();
+                    DetectorClock.advanceTo(now);
+                    long t0 = System.nanoTime();
+                    List<ChatEvent> chatEvents = classifier.classify(event.text);
+                    for (int i = 0; i < chatEvents.size(); i++) {
+                        if (chatEvents.get(i).type == ChatEvent.Type.DEATH) {
+                            GhostTotemDetector.onDeathMessage(chatEvents.get(i).player, now);
+                        }
+                    }
+                    chatCost.record(System.nanoTime() - t0);
+                }
+                case ARMOR -> {
+                    ensureFight();
+                    DetectorClock.advanceTo(now);
+                    applyArmor(event.health);
+                    PlayerSnapshot.refreshInventory(inventory); // As the armor slot packets would
+                }
+                case COMMAND -> {
+                    ensureFight();
+                    DetectorClock.advanceTo(now);
+                    if (keepResults) {
+                        checkCommand(event.text, event.expected);
+                    }
+                }
+            }
+        }
+        finishFight(keepResults);
+    }
+
+    private Fight ensureFight() {
+        if (current == null) {
+            GhostTotemDetector.resetState();
+            current = new Fight("fight " + (fights.size() + 1));
+            detectionsThisFight = 0;
+        }
+        return current;
+    }
+
+    private void finishFight(boolean keepResults) {
+        if (current != null && keepResults) {
+            current.detections = detectionsThisFight;
+            fights.add(current);
+        }
+        current = null;
+    }
+
+    private void onGhost(String hand, long millis, long ticks, boolean timed) {
+        detectionsThisFight++;
+        if (verbose) {
+            System.out.printf("  [%s] ghost: %s%s%n", current != null ? current.label : "?", hand,
+                timed ? ", held " + millis + "ms (" + ticks + " ticks)" : " (no timing)");
+        }
+    }
+
+    // Gate verdict for a command as QueueDurabilityChecker would reach it, against the expected one
+    private void checkCommand(String command, String expected) {
+        CommandRules.Rule rule = CommandRules.match(command);
+        String verdict = rule == null ? "none" : rule.name + (CommandRules.failedChecks(rule) != 0 ? ":block" : ":ready");
+        commandChecks++;
+        if (!verdict.equals(expected)) {
+            commandMismatches++;
+            System.out.println("COMMAND MISMATCH: " + ensureFight().label + ": /" + command + " expected " + expected + ", got " + verdict);
+        } else if (verbose) {
+            System.out.printf("  [%s] /%s -> %s%n", current.label, command, verdict);
+        }
+    }
+
+    private void applyArmor(float percent) {
+        for (int i = 0; i < ARMOR_PIECES.length; i++) {
+            ItemStack piece = new ItemStack(ARMOR_PIECES[i]);
+            piece.setDamage(Math.round(piece.getMaxDamage() * (1 - percent / 100)));
+            inventory.armor.set(i, piece);
+        }
+        inventory.markDirty();
+    }
+
+    private void clearArmor() {
+        for (int i = 0; i < inventory.armor.size(); i++) {
+            inventory.armor.set(i, ItemStack.EMPTY);
+        }
+        inventory.markDirty();
+    }
+
+    // Rebuild the stand-in inventory from a snapshot: selected slot, both hands, empty-slot count
+    private void applyInventory(Event event) {
+        inventory.selectedSlot = event.slot;
+        int toFill = INVENTORY_SIZE - event.emptySlots - (event.mainItem.isEmpty() ? 0 : 1);
+        for (int i = 0; i < INVENTORY_SIZE; i++) {
+            if (i == event.slot) {
+                inventory.main.set(i, event.mainItem);
+            } else if (toFill > 0) {
+                inventory.main.set(i, filler);
+                toFill--;
+            } else {
+                inventory.main.set(i, ItemStack.EMPTY);
+            }
+        }
+        inventory.offHand.set(0, event.offItem);
+        inventory.markDirty(); // As a local change would, so the tick's snapshot re-walks it
+    }
+
+    private void report(long elapsedNanos) {
+        int detections = 0, truePositives = 0, falsePositives = 0, missed = 0, labelled = 0;
+        for (Fight fight : fights) {
+            detections += fight.detections;
+            if (fight.expectGhost == null) {
+                continue;
+            }
+            labelled++;
+            if (fight.expectGhost && fight.detections > 0) {
+                truePositives++;
+            } else if (fight.expectGhost) {
+                missed++;
+                System.out.println("MISSED: " + fight.label);
+            } else if (fight.detections > 0) {
+                falsePositives++;
+                System.out.println("FALSE POSITIVE: " + fight.label);
+            }
+        }
+
+        long events = tickCost.count() + inventoryCost.count() + popCost.count() + chatCost.count();
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("Replayed %d fights (%d events) in %.1f ms%n", fights.size(), events, elapsedNanos / 1e6);
+        System.out.printf("Throughput: %.0f events/s%n", events / seconds);
+        System.out.printf("Thresholds: empty slots >= %d, pop window %d ms, death signal window %d ms%n",
+            GhostTotemDetector.inventoryClearEmptySlots, GhostTotemDetector.popWindowMillis, DeathCorrelator.windowMillis);
+        System.out.printf("Detections: %d | labelled fights: %d | true positives: %d | false positives: %d | missed: %d%n",
+            detections, labelled, truePositives, falsePositives, missed);
+        if (commandChecks > 0) {
+            System.out.printf("Command checks: %d | mismatches: %d%n", commandChecks, commandMismatches);
+        }
+        System.out.println("Per-event cost (ns, p50/p99/max):");
+        printCost("tick", tickCost);
+        printCost("inventory", inventoryCost);
+        printCost("pop", popCost);
+        printCost("chat", chatCost);
+    }
+
+    private static void printCost(String label, LogHistogram histogram) {
+        if (histogram.count() > 0) {
+            System.out.printf("  %-10s n=%-8d %d / %d / %d%n", label, histogram.count(),
+                histogram.percentile(50), histogram.percentile(99), histogram.max());
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //  Input formats
+    // ------------------------------------------------------------------
+
+    private static List<Event> readTrace(Path file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        int lineNumber = 0;
+        for (String raw : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String line = raw.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            try {
+                switch (parts[0]) {
+                    case "self" -> events.add(Event.text(Kind.SELF, 0, parts[1]));
+                    case "fight" -> events.add(Event.text(Kind.FIGHT, 0, line.length() > 5 ? line.substring(5).strip() : file.getFileName().toString()));
+                    case "expect" -> events.add(Event.text(Kind.EXPECT, 0, parts[1]));
+                    case "tick" -> events.add(Event.snapshot(Kind.TICK, Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                        stack(parts[3]), stack(parts[4]), Float.parseFloat(parts[5]), gameMode(parts[6]), Integer.parseInt(parts[7])));
+                    case "inv" -> events.add(Event.snapshot(Kind.INVENTORY, Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                        stack(parts[3]), stack(parts[4]), 0, null, Integer.parseInt(parts[5])));
+                    case "pop" -> events.add(Event.text(Kind.POP, Long.parseLong(parts[1]), null));
+                    case "chat" -> events.add(Event.text(Kind.CHAT, Long.parseLong(parts[1]),
+                        line.substring(line.indexOf(parts[1]) + parts[1].length()).strip()));
+                    case "armor" -> events.add(Event.snapshot(Kind.ARMOR, Long.parseLong(parts[1]), 0,
+                        ItemStack.EMPTY, ItemStack.EMPTY, Float.parseFloat(parts[2]), null, 0));
+                    case "command" -> {
+                        String[] command = line.split("\\s+", 4);
+                        Event event = Event.text(Kind.COMMAND, Long.parseLong(command[1]), command[3]);
+                        event.expected = command[2];
+                        events.add(event);
+                    }
+                    default -> throw new IllegalArgumentException("unknown event '" + parts[0] + "'");
+                }
+            } catch (RuntimeException e) {
+                throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return events;
+    }
+
+    // Converts a FlightRecorder dump into tick events; pops and self death chat are inferred from
+    // the recorded timestamps changing between ticks.
+    private static List<Event> readFlightDump(Path file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        events.add(Event.text(Kind.FIGHT, 0, file.getFileName().toString()));
+        events.add(Event.text(Kind.SELF, 0, "Self"));
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            if (data.readInt() != FlightRecorder.MAGIC) {
+                throw new IOException(file + ": not a flight recorder dump");
+            }
+            data.readShort(); // version
+            int count = data.readInt();
+            long firstNano = 0, lastPop = 0, lastChat = 0;
+            for (int n = 0; n < count; n++) {
+                data.readLong(); // tick
+                long nano = data.readLong();
+                int slot = data.readByte();
+                ItemStack main = stack(data.readInt());
+                ItemStack off = stack(data.readInt());
+                float hp = data.readFloat();
+                int mode = data.readByte();
+                long pop = data.readLong();
+                long chat = data.readLong();
+                int empty = data.readByte();
+
+                if (n == 0) {
+                    firstNano = nano;
+                    lastPop = pop;
+                    lastChat = chat;
+                }
+                long timeMillis = (nano - firstNano) / 1_000_000;
+                if (pop != lastPop && pop != 0) {
+                    events.add(Event.text(Kind.POP, Math.max(0, (pop - firstNano) / 1_000_000), null));
+                }
+                if (chat != lastChat && chat != 0) {
+                    events.add(Event.text(Kind.CHAT, timeMillis, "Self was killed"));
+                }
+                lastPop = pop;
+                lastChat = chat;
+                events.add(Event.snapshot(Kind.TICK, timeMillis, slot, main, off, hp, mode < 0 ? null : GameMode.byId(mode), empty));
+            }
+        }
+        return events;
+    }
+
+    private static ItemStack stack(String id) {
+        if (id.equals("-")) {
+            return ItemStack.EMPTY;
+        }
+        Item item = Registries.ITEM.get(Identifier.of(id.contains(":") ? id : "minecraft:" + id));
+        return item == Items.AIR ? ItemStack.EMPTY : new ItemStack(item);
+    }
+
+    private static ItemStack stack(int rawId) {
+        Item item = Item.byRawId(rawId);
+        return item == Items.AIR ? ItemStack.EMPTY : new ItemStack(item);
+    }
+
+    private static GameMode gameMode(String name) {
+        return name.equals("-") ? null : GameMode.byName(name.toLowerCase(), null);
+    }
+
+    private enum Kind { SELF, FIGHT, EXPECT, TICK, INVENTORY, POP, CHAT, ARMOR, COMMAND }
+
+    private static class Event {
+        Kind kind;
+        long timeMillis;
+        String text;
+        int slot;
+        ItemStack mainItem = ItemStack.EMPTY;
+        ItemStack offItem = ItemStack.EMPTY;
+        float health; // Armor durability percent for ARMOR
+        GameMode gameMode;
+        int emptySlots;
+        String expected; // Gate verdict for COMMAND
+
+        static Event text(Kind kind, long timeMillis, String text) {
+            Event event = new Event();
+            event.kind = kind;
+            event.timeMillis = timeMillis;
+            event.text = text;
+            return event;
+        }
+
+        static Event snapshot(Kind kind, long timeMillis, int slot, ItemStack main, ItemStack off,
+                              float health, GameMode gameMode, int emptySlots) {
+            Event event = text(kind, timeMillis, null);
+            event.slot = slot;
+            event.mainItem = main;
+            event.offItem = off;
+            event.health = health;
+            event.gameMode = gameMode;
+            event.emptySlots = emptySlots;
+            return event;
+        }
+    }
+
+    private static class Fight {
+        final String label;
+        Boolean expectGhost; // null = unlabelled
+        int detections;
+
+        Fight(String label) {
+            this.label = label;
+        }
+    }
+}